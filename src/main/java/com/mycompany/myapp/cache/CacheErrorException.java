@@ -2,6 +2,10 @@ package com.mycompany.myapp.cache;
 
 public class CacheErrorException extends RuntimeException {
 
+    public CacheErrorException(String message) {
+        super(message);
+    }
+
     public CacheErrorException(Throwable cause) {
         super(cause);
     }
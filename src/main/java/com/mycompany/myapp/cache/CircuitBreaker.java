@@ -0,0 +1,108 @@
+package com.mycompany.myapp.cache;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stops calling a remote cache which keeps failing, so that the callers fail fast instead of waiting for it.
+ *
+ * The circuit opens after failureThreshold consecutive failures. Once openDurationInMillis has elapsed,
+ * a single call is let through to probe the remote cache: the circuit closes if it succeeds, and opens
+ * again otherwise. A probe whose outcome is not reported within probeTimeoutInMillis, e.g. because it was
+ * cancelled, is given up and another call is let through.
+ * A circuit breaker built with failureThreshold lower or equal to 0 is disabled: it never opens.
+ */
+public class CircuitBreaker {
+
+    /**
+     * The states, from the healthiest to the least healthy.
+     */
+    public enum State {
+        CLOSED,
+        HALF_OPEN,
+        OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openDurationInNanos;
+    private final long probeTimeoutInNanos;
+    private State state = State.CLOSED;
+    private int failures;
+    private long openedAt;
+    private long probedAt;
+
+    public CircuitBreaker(int failureThreshold, long openDurationInMillis) {
+        this(failureThreshold, openDurationInMillis, openDurationInMillis);
+    }
+
+    public CircuitBreaker(int failureThreshold, long openDurationInMillis, long probeTimeoutInMillis) {
+        this.failureThreshold = failureThreshold;
+        this.openDurationInNanos = TimeUnit.MILLISECONDS.toNanos(openDurationInMillis);
+        this.probeTimeoutInNanos = TimeUnit.MILLISECONDS.toNanos(probeTimeoutInMillis);
+    }
+
+    public boolean isEnabled() {
+        return failureThreshold > 0;
+    }
+
+    /**
+     * @return true if a call may be sent, false if it should fail right away
+     */
+    public synchronized boolean allowRequest() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (System.nanoTime() - openedAt >= openDurationInNanos) {
+                    state = State.HALF_OPEN;
+                    probedAt = System.nanoTime();
+                    return true;
+                }
+                return false;
+            default:
+                // a probe is already running, unless it was lost without reporting its outcome
+                if (System.nanoTime() - probedAt >= probeTimeoutInNanos) {
+                    probedAt = System.nanoTime();
+                    return true;
+                }
+                return false;
+        }
+    }
+
+    /**
+     * Record a successful call.
+     *
+     * @return true if the circuit was not closed, and is now
+     */
+    public synchronized boolean onSuccess() {
+        failures = 0;
+        if (state == State.CLOSED) {
+            return false;
+        }
+        state = State.CLOSED;
+        return true;
+    }
+
+    /**
+     * Record a failed call.
+     *
+     * @return true if the circuit was closed, and is now open
+     */
+    public synchronized boolean onFailure() {
+        if (!isEnabled()) {
+            return false;
+        }
+        failures++;
+        if (state == State.HALF_OPEN || failures >= failureThreshold) {
+            boolean opened = state == State.CLOSED;
+            state = State.OPEN;
+            openedAt = System.nanoTime();
+            failures = 0;
+            return opened;
+        }
+        return false;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+}
@@ -0,0 +1,174 @@
+package com.mycompany.myapp.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Estimates how often keys are accessed, with a count-min sketch, and keeps the most accessed ones (top-K).
+ *
+ * The sketch has a fixed size whatever the number of keys: a count is never under-estimated, and over-estimated
+ * by a few times window / width at most, with a high probability.
+ * The counts are halved every window accesses, so that the keys which are not accessed anymore fade out.
+ * A sketch built with topSize lower or equal to 0 is disabled: it never counts anything.
+ *
+ * As every read records its key, record() never blocks: the counters are atomic, and the count of a key already
+ * among the most accessed ones is updated in place. Only a key accessed more than the least accessed of them takes
+ * the lock to replace it, and gives up if another key holds it, as it will be offered again on its next access.
+ */
+public class HotKeySketch {
+    private static final int DEPTH = 4;
+    private static final int[] SEEDS = { 0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F };
+    private static final IntUnaryOperator INCREMENT = count -> count < Integer.MAX_VALUE ? count + 1 : count;
+    private static final IntUnaryOperator HALVE = count -> count >>> 1;
+
+    private final int topSize;
+    private final int mask;
+    private final long window;
+    private final AtomicIntegerArray[] counts;
+    private final Map<String, Integer> top = new ConcurrentHashMap<>();
+    private final AtomicLong accesses = new AtomicLong();
+    /**
+     * Guards the replacement of the keys in the top-K, the aging and the clearing.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+    /**
+     * The count a key must exceed to enter the top-K once it is full, i.e. the lowest count of the top-K when it
+     * was last computed. The counts of the top-K only grow between two agings, so it is never too high.
+     */
+    private volatile int admission;
+
+    /**
+     * @param topSize the number of most accessed keys kept
+     * @param width the number of counters per row, rounded up to a power of two
+     * @param window the number of accesses after which the counts are halved
+     */
+    public HotKeySketch(int topSize, int width, long window) {
+        this.topSize = topSize;
+        int size = Integer.highestOneBit(Math.max(width, 2) - 1) << 1;
+        this.mask = size - 1;
+        this.window = window;
+        this.counts = new AtomicIntegerArray[isEnabled() ? DEPTH : 0];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = new AtomicIntegerArray(size);
+        }
+    }
+
+    public boolean isEnabled() {
+        return topSize > 0;
+    }
+
+    /**
+     * Count an access to a key.
+     *
+     * @param key the key accessed
+     * @return the estimated number of accesses to the key
+     */
+    public int record(String key) {
+        if (!isEnabled()) {
+            return 0;
+        }
+        int hash = key.hashCode();
+        int estimate = Integer.MAX_VALUE;
+        for (int i = 0; i < DEPTH; i++) {
+            estimate = Math.min(estimate, counts[i].updateAndGet(index(hash, i), INCREMENT));
+        }
+        if (top.replace(key, estimate) == null && (top.size() < topSize || estimate > admission)) {
+            offer(key, estimate);
+        }
+        // a single thread resets the number of accesses, and ages the counts
+        if (accesses.incrementAndGet() >= window && accesses.getAndSet(0) >= window) {
+            age();
+        }
+        return estimate;
+    }
+
+    /**
+     * @param key a key
+     * @return the estimated number of accesses to the key, if it is one of the most accessed keys, 0 otherwise
+     */
+    public int count(String key) {
+        return top.getOrDefault(key, 0);
+    }
+
+    /**
+     * @return the most accessed keys with their estimated number of accesses, the most accessed first
+     */
+    public List<Map.Entry<String, Integer>> top() {
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>();
+        top.forEach((key, count) -> entries.add(Map.entry(key, count)));
+        entries.sort(Map.Entry.<String, Integer>comparingByValue().reversed());
+        return entries;
+    }
+
+    public void clear() {
+        lock.lock();
+        try {
+            for (AtomicIntegerArray row : counts) {
+                for (int i = 0; i < row.length(); i++) {
+                    row.set(i, 0);
+                }
+            }
+            top.clear();
+            accesses.set(0);
+            admission = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int index(int hash, int row) {
+        int h = hash * SEEDS[row];
+        h ^= h >>> 16;
+        return h & mask;
+    }
+
+    /**
+     * Keep the key among the most accessed ones if it is accessed more than the least accessed of them.
+     */
+    private void offer(String key, int estimate) {
+        if (!lock.tryLock()) {
+            return;
+        }
+        try {
+            if (top.size() >= topSize && !top.containsKey(key)) {
+                Map.Entry<String, Integer> coldest = Collections.min(top.entrySet(), Map.Entry.comparingByValue());
+                if (estimate <= coldest.getValue()) {
+                    admission = coldest.getValue();
+                    return;
+                }
+                top.remove(coldest.getKey());
+            }
+            top.put(key, estimate);
+            updateAdmission();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void age() {
+        lock.lock();
+        try {
+            for (AtomicIntegerArray row : counts) {
+                for (int i = 0; i < row.length(); i++) {
+                    row.updateAndGet(i, HALVE);
+                }
+            }
+            top.replaceAll((key, count) -> count >>> 1);
+            top.values().removeIf(count -> count == 0);
+            updateAdmission();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void updateAdmission() {
+        admission = top.size() < topSize ? 0 : Collections.min(top.values());
+    }
+}
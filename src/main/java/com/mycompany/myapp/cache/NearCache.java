@@ -0,0 +1,85 @@
+package com.mycompany.myapp.cache;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A small in-process cache used in front of a remote cache to serve hot entries from the heap.
+ *
+ * Entries are evicted in LRU order once maxEntries is reached, and expire after timeToLiveInMillis.
+ * A cache built with maxEntries or timeToLiveInMillis lower or equal to 0 is disabled: it never stores anything.
+ *
+ * Values are shared between callers, they must not be modified once stored.
+ *
+ * @param <T> The object to handle in the cache
+ */
+public class NearCache<T> {
+    private final int maxEntries;
+    private final long timeToLiveInNanos;
+    private final Map<String, Entry<T>> entries;
+
+    public NearCache(int maxEntries, long timeToLiveInMillis) {
+        this.maxEntries = maxEntries;
+        this.timeToLiveInNanos = TimeUnit.MILLISECONDS.toNanos(timeToLiveInMillis);
+        this.entries =
+            new LinkedHashMap<>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Entry<T>> eldest) {
+                    return size() > NearCache.this.maxEntries;
+                }
+            };
+    }
+
+    public boolean isEnabled() {
+        return maxEntries > 0 && timeToLiveInNanos > 0;
+    }
+
+    /**
+     * @param key the key of the entry
+     * @return the value if present and not expired, null otherwise
+     */
+    public synchronized T get(String key) {
+        Entry<T> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt - System.nanoTime() <= 0) {
+            entries.remove(key);
+            return null;
+        }
+        return entry.value;
+    }
+
+    public synchronized void put(String key, T value) {
+        if (!isEnabled() || value == null) {
+            return;
+        }
+        entries.put(key, new Entry<>(value, System.nanoTime() + timeToLiveInNanos));
+    }
+
+    public synchronized void invalidate(Collection<String> keys) {
+        keys.forEach(entries::remove);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private static class Entry<T> {
+        final T value;
+        final long expiresAt;
+
+        Entry(T value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.mycompany.myapp.cache.codec;
+
+import java.util.Arrays;
+
+/**
+ * Store byte arrays as they are, for caches of already serialized values.
+ */
+public class ByteArrayCacheCodec implements CacheCodec<byte[]> {
+    public static final byte ID = 3;
+
+    @Override
+    public byte id() {
+        return ID;
+    }
+
+    @Override
+    public byte[] encode(byte[] value) {
+        return value;
+    }
+
+    @Override
+    public byte[] decode(byte[] data, int offset, int length) {
+        return Arrays.copyOfRange(data, offset, offset + length);
+    }
+}
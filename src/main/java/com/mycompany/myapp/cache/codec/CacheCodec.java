@@ -0,0 +1,22 @@
+package com.mycompany.myapp.cache.codec;
+
+import java.io.IOException;
+
+/**
+ * Convert the values of a cache to the bytes stored in Redis, and back.
+ *
+ * Each codec has its own identifier, written before every encoded value: a value can always be decoded
+ * by the codec which wrote it, so the codec of a cache can be changed without flushing Redis.
+ *
+ * @param <T> The object to handle in the cache
+ */
+public interface CacheCodec<T> {
+    /**
+     * @return the identifier of the codec, written in the first byte of the stored values
+     */
+    byte id();
+
+    byte[] encode(T value) throws IOException;
+
+    T decode(byte[] data, int offset, int length) throws IOException;
+}
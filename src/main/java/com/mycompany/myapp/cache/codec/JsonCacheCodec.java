@@ -0,0 +1,34 @@
+package com.mycompany.myapp.cache.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+
+/**
+ * Store the values as JSON documents.
+ */
+public class JsonCacheCodec<T> implements CacheCodec<T> {
+    public static final byte ID = 1;
+
+    private final ObjectMapper objectMapper;
+    private final Class<T> type;
+
+    public JsonCacheCodec(ObjectMapper objectMapper, Class<T> type) {
+        this.objectMapper = objectMapper;
+        this.type = type;
+    }
+
+    @Override
+    public byte id() {
+        return ID;
+    }
+
+    @Override
+    public byte[] encode(T value) throws IOException {
+        return objectMapper.writeValueAsBytes(value);
+    }
+
+    @Override
+    public T decode(byte[] data, int offset, int length) throws IOException {
+        return objectMapper.readValue(data, offset, length, type);
+    }
+}
@@ -0,0 +1,41 @@
+package com.mycompany.myapp.cache.codec;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import java.io.IOException;
+
+/**
+ * Store the values in Smile, the binary form of JSON: smaller than JSON and faster to parse,
+ * with the same mapping of the objects.
+ */
+public class SmileCacheCodec<T> implements CacheCodec<T> {
+    public static final byte ID = 2;
+
+    private static final ObjectMapper smileMapper = SmileMapper
+        .builder()
+        .findAndAddModules()
+        .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+        .build();
+
+    private final Class<T> type;
+
+    public SmileCacheCodec(Class<T> type) {
+        this.type = type;
+    }
+
+    @Override
+    public byte id() {
+        return ID;
+    }
+
+    @Override
+    public byte[] encode(T value) throws IOException {
+        return smileMapper.writeValueAsBytes(value);
+    }
+
+    @Override
+    public T decode(byte[] data, int offset, int length) throws IOException {
+        return smileMapper.readValue(data, offset, length, type);
+    }
+}
@@ -0,0 +1,25 @@
+package com.mycompany.myapp.cache.redis;
+
+import java.util.List;
+
+/**
+ * Message published on the invalidation channel of a cache when entries are removed,
+ * so that the other nodes drop their local copies.
+ */
+public class CacheInvalidation {
+    /**
+     * The node which removed the entries.
+     */
+    public String origin;
+    /**
+     * The removed keys, or null when the whole cache has been cleared.
+     */
+    public List<String> keys;
+
+    public CacheInvalidation() {}
+
+    public CacheInvalidation(String origin, List<String> keys) {
+        this.origin = origin;
+        this.keys = keys;
+    }
+}
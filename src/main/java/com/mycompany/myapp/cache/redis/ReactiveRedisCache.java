@@ -0,0 +1,252 @@
+package com.mycompany.myapp.cache.redis;
+
+import com.mycompany.myapp.cache.CacheErrorException;
+import io.quarkus.redis.client.reactive.ReactiveRedisClient;
+import io.smallrye.mutiny.Uni;
+import io.vertx.redis.client.Request;
+import io.vertx.redis.client.Response;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import javax.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * This class gives a non blocking access to the entries of a RedisCache: no worker thread waits for Redis,
+ * a cache hit completes on the I/O thread.
+ *
+ * It works on the same keys, with the same configuration, near cache, circuit breaker and codec than the RedisCache
+ * given to the constructor, so both can be used side by side.
+ * Concurrent misses are coalesced on the node, but the load lock of the RedisCache is not used.
+ *
+ * @param <T> The object to handle in the cache
+ */
+public abstract class ReactiveRedisCache<T> {
+    private final Logger log = LoggerFactory.getLogger(ReactiveRedisCache.class);
+
+    @Inject
+    ReactiveRedisClient redis;
+
+    final RedisCache<T> cache;
+
+    public ReactiveRedisCache(RedisCache<T> cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Return the value in the cache or subscribe to the loader if no value is present in the cache.
+     * The loader is responsible for running on a worker thread if it blocks, e.g. to query the database.
+     *
+     * @param identifier the unique object's identifier to store
+     * @param valueLoader a lambda used to load the value in case cache is empty
+     * @return The value found in the cache or retrieved by the loader
+     */
+    public Uni<Optional<T>> get(Object identifier, Supplier<Uni<T>> valueLoader) {
+        if (identifier == null) {
+            throw new NullPointerException(RedisCache.NULL_KEYS_NOT_SUPPORTED_MSG);
+        }
+        String key = cache.generateKey(identifier);
+        T result = cache.getLocally(key);
+
+        if (result != null) {
+            return Uni.createFrom().item(Optional.of(result));
+        }
+
+        boolean refreshAhead = cache.isRefreshAheadEnabled() && valueLoader != null;
+        Uni<Response> read = refreshAhead ? redis.eval(Arrays.asList(RedisScripts.GET_WITH_TIME_TO_LIVE, "1", key)) : cache.fetch(key);
+        return cache
+            .guard("get", read)
+            .flatMap(
+                entry -> {
+                    Response response = entry.get(0);
+                    // aliases are not kept in the near cache nor refreshed, see RedisCache.getByAlias
+                    boolean aliased = RedisCache.isAliased(entry.get(refreshAhead ? 2 : 1));
+                    if (
+                        refreshAhead &&
+                        response != null &&
+                        !aliased &&
+                        !RedisCache.isTombstone(response) &&
+                        cache.shouldRefresh(entry.get(1).toLong())
+                    ) {
+                        refresh(key, valueLoader);
+                    }
+                    return onResponse(key, aliased ? null : key, response, valueLoader);
+                }
+            )
+            .onFailure(CacheErrorException.class)
+            .recoverWithUni(failure -> loadWithoutRedis(key, valueLoader, failure));
+    }
+
+    /**
+     * Same as RedisCache.loadWithoutRedis(), subscribing to the loader. The loads are coalesced with the ones
+     * of the RedisCache.
+     */
+    private Uni<Optional<T>> loadWithoutRedis(String key, Supplier<Uni<T>> valueLoader, Throwable cause) {
+        cache.metrics.fallbacks.increment();
+        log.debug("Redis failed for {}, falling back to the loader: {}", key, cause.getMessage());
+        T result = cache.fallbackCache.get(key);
+        if (result != null || valueLoader == null) {
+            return Uni.createFrom().item(Optional.ofNullable(result));
+        }
+
+        CompletableFuture<T> load = new CompletableFuture<>();
+        CompletableFuture<T> runningLoad = cache.loadsInFlight.putIfAbsent(key, load);
+        if (runningLoad != null) {
+            return Uni.createFrom().completionStage(runningLoad).map(Optional::ofNullable);
+        }
+
+        load.whenComplete((value, failure) -> cache.loadsInFlight.remove(key, load));
+        Uni
+            .createFrom()
+            .deferred(valueLoader)
+            .subscribe()
+            .with(
+                value -> {
+                    cache.fallbackCache.put(key, value);
+                    load.complete(value);
+                },
+                load::completeExceptionally
+            );
+        return Uni.createFrom().completionStage(load).map(Optional::ofNullable);
+    }
+
+    private Uni<Optional<T>> onResponse(String key, String nearCacheKey, Response response, Supplier<Uni<T>> valueLoader) {
+        if (response != null) {
+            cache.metrics.redisHits.increment();
+            return Uni.createFrom().item(cache.decodeEntry(nearCacheKey, response));
+        }
+        cache.metrics.misses.increment();
+        if (valueLoader == null) {
+            return Uni.createFrom().item(Optional.empty());
+        }
+        return load(key, valueLoader).map(Optional::ofNullable);
+    }
+
+    /**
+     * Store an object in the cache.
+     *
+     * @param identifier the unique object's identifier to store (could not be null)
+     * @param value the value to store
+     * @return a Uni completed once the value is stored
+     */
+    public Uni<Void> set(Object identifier, T value) {
+        if (identifier == null) {
+            throw new NullPointerException(RedisCache.NULL_KEYS_NOT_SUPPORTED_MSG);
+        }
+        if (value == null) {
+            return Uni.createFrom().item((Void) null);
+        }
+        String key = cache.generateKey(identifier);
+
+        return send("set", cache.setRequest(key, value))
+            .map(
+                response -> {
+                    cache.putLocally(key, value);
+                    return null;
+                }
+            );
+    }
+
+    /**
+     * Run the loader once per key on this node, sharing the running loads with the RedisCache.
+     */
+    Uni<T> load(String key, Supplier<Uni<T>> valueLoader) {
+        CompletableFuture<T> load = new CompletableFuture<>();
+        CompletableFuture<T> runningLoad = cache.loadsInFlight.putIfAbsent(key, load);
+
+        if (runningLoad != null) {
+            return Uni.createFrom().completionStage(runningLoad);
+        }
+
+        load.whenComplete((value, failure) -> cache.loadsInFlight.remove(key, load));
+        cache
+            .guard("generation", redis.get(RedisCache.generationKey(key)))
+            .subscribe()
+            .with(generation -> runLoader(key, RedisCache.generation(generation), valueLoader, load), load::completeExceptionally);
+
+        return Uni.createFrom().completionStage(load);
+    }
+
+    /**
+     * Reload an entry in background, unless it is already being loaded on this node.
+     */
+    void refresh(String key, Supplier<Uni<T>> valueLoader) {
+        if (cache.loadsInFlight.containsKey(key) || !cache.refreshesInFlight.add(key)) {
+            return;
+        }
+        cache.metrics.refreshes.increment();
+        CompletableFuture<T> refresh = new CompletableFuture<>();
+        refresh.whenComplete((value, failure) -> cache.refreshesInFlight.remove(key));
+        cache
+            .guard("generation", redis.get(RedisCache.generationKey(key)))
+            .subscribe()
+            .with(generation -> runLoader(key, RedisCache.generation(generation), valueLoader, refresh), refresh::completeExceptionally);
+    }
+
+    /**
+     * Run the loader and store its value, completing the load in every case: a loader or a codec throwing
+     * instead of returning a failed Uni must not leave the load running forever.
+     */
+    private void runLoader(String key, String generation, Supplier<Uni<T>> valueLoader, CompletableFuture<T> load) {
+        long start = System.nanoTime();
+        Uni
+            .createFrom()
+            .deferred(valueLoader)
+            .subscribe()
+            .with(
+                value -> {
+                    cache.metrics.loadDuration.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    cache.metrics.loadSuccesses.increment();
+                    cache.recordLoadTime(System.nanoTime() - start);
+                    Uni
+                        .createFrom()
+                        .deferred(() -> store(key, generation, value))
+                        .subscribe()
+                        .with(
+                            stored -> load.complete(value),
+                            failure -> {
+                                // the loaded value is returned even if Redis fails to store it
+                                log.debug("Could not cache {}: {}", key, failure.getMessage());
+                                load.complete(value);
+                            }
+                        );
+                },
+                failure -> {
+                    cache.metrics.loadDuration.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    cache.metrics.loadFailures.increment();
+                    load.completeExceptionally(failure);
+                }
+            );
+    }
+
+    /**
+     * Store a loaded value, or a tombstone if nothing was loaded and negative caching is enabled,
+     * unless the key has been evicted during the load.
+     */
+    Uni<Void> store(String key, String generation, T value) {
+        if (value == null && cache.negativeTimeToLiveInMillis <= 0) {
+            return Uni.createFrom().item((Void) null);
+        }
+        return send("set", cache.storeRequest(key, generation, key, value))
+            .map(
+                stored -> {
+                    if (value != null && stored.toInteger() == 1) {
+                        cache.putLocally(key, value);
+                    }
+                    return null;
+                }
+            );
+    }
+
+    /**
+     * Send a command with the Vert.x client, which accepts binary arguments, through the circuit breaker of the cache.
+     *
+     * @param operation the cache operation sending the command, to record its latency
+     */
+    Uni<Response> send(String operation, Request request) {
+        return cache.guard(operation, cache.request(request));
+    }
+}
@@ -0,0 +1,17 @@
+package com.mycompany.myapp.cache.redis;
+
+import com.mycompany.myapp.domain.User;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Non blocking access to the users stored by the UserRedisCache.
+ */
+@Singleton
+public class ReactiveUserRedisCache extends ReactiveRedisCache<User> {
+
+    @Inject
+    public ReactiveUserRedisCache(UserRedisCache userRedisCache) {
+        super(userRedisCache);
+    }
+}
@@ -3,30 +3,107 @@ package com.mycompany.myapp.cache.redis;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mycompany.myapp.cache.CacheErrorException;
-import io.quarkus.redis.client.RedisClient;
+import com.mycompany.myapp.cache.CircuitBreaker;
+import com.mycompany.myapp.cache.HotKeySketch;
+import com.mycompany.myapp.cache.NearCache;
+import com.mycompany.myapp.cache.codec.CacheCodec;
+import com.mycompany.myapp.cache.codec.Deflate;
+import com.mycompany.myapp.cache.codec.JsonCacheCodec;
+import com.mycompany.myapp.cache.codec.SmileCacheCodec;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.redis.client.reactive.ReactiveRedisClient;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import io.vertx.redis.client.Command;
+import io.vertx.redis.client.Redis;
+import io.vertx.redis.client.Request;
 import io.vertx.redis.client.Response;
+import io.vertx.redis.client.ResponseType;
+import java.io.IOException;
 import java.lang.reflect.ParameterizedType;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import javax.annotation.PostConstruct;
 import javax.inject.Inject;
+import org.eclipse.microprofile.config.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * This class represent a cache manager for the given object T.
  * Each object managed by the Redis cache should have a proper implementation
  * and define a prefix through the constructor.
  *
+ * Each cache can be tuned with properties under "jhipster.cache.[name].", where the name is
+ * the prefix in lower case without its delimiter (e.g. "jhipster.cache.user." for "USER:").
+ * Each option is described on the method it tunes, and the optional features are disabled by default.
+ * Hits, misses, loads, evictions and the latency of Redis are recorded in the meters of RedisCacheMetrics,
+ * and a ReactiveRedisCache gives a non blocking access to the same entries.
+ *
  * @param <T> The object to handle in the cache
  */
 public abstract class RedisCache<T> {
     public static final String NULL_KEYS_NOT_SUPPORTED_MSG = "Null keys are not supported";
+    /**
+     * The value stored for an identifier known to have no object, it can't be mistaken for a serialized value
+     * as 0 is not a codec identifier.
+     */
+    static final String TOMBSTONE = "\u0000";
+    /**
+     * Flag set in the first byte of a value when the encoded value is compressed.
+     */
+    static final byte COMPRESSED = (byte) 0x80;
+    /**
+     * The first byte of an alias, followed by the key it points to. It is neither a codec identifier nor
+     * the first character of a JSON document.
+     */
+    static final byte ALIAS = 0x7F;
+    /**
+     * The first byte of a value written as a Redis hash by a RedisHashCache, followed by the fields and their values
+     * as a JSON array, see RedisScripts.
+     */
+    static final byte HASH = 0x7E;
+
+    private final Logger log = LoggerFactory.getLogger(RedisCache.class);
+
+    /**
+     * The Mutiny client, used to send the commands with a timeout.
+     */
+    @Inject
+    ReactiveRedisClient reactiveRedis;
 
+    /**
+     * The Vert.x client, used for the commands carrying binary values which can't be sent by the Mutiny client.
+     */
     @Inject
-    RedisClient redis;
+    Redis vertxRedis;
 
     @Inject
     ObjectMapper objectMapper;
 
+    @Inject
+    Config config;
+
+    @Inject
+    MeterRegistry registry;
+
+    @Inject
+    RedisInvalidationListener invalidationListener;
+
     final Class<T> type;
     /**
      * The prefix is used to define the key for storing purpose.
@@ -37,10 +114,200 @@ public abstract class RedisCache<T> {
      * or to retrieve all current keys in the cache through keys() method.
      */
     final String prefix;
+    /**
+     * The name is used to look up the configuration of this cache, e.g. "user" for "USER:".
+     */
+    final String name;
+    /**
+     * The Redis channel used to notify the other nodes about evictions.
+     */
+    final String invalidationChannel;
+
+    NearCache<T> nearCache;
+    HotKeySketch hotKeys;
+    /**
+     * The hot keys kept in memory, when the near cache doesn't hold them.
+     */
+    NearCache<T> pinnedCache;
+    int pinThreshold;
+    Duration timeout;
+    CircuitBreaker circuitBreaker;
+    /**
+     * The values loaded while Redis fails, served until Redis is back.
+     */
+    NearCache<T> fallbackCache;
+    /**
+     * The keys which could not be evicted after a commit, evicted again until Redis removes them.
+     */
+    final Set<String> pendingEvictions = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean evictionRetryRunning = new AtomicBoolean();
+    private final AtomicBoolean evictionRetryScheduled = new AtomicBoolean();
+    private final AtomicBoolean evictionRetryOnReconnect = new AtomicBoolean();
+    long evictionRetryDelayInMillis;
+    CacheCodec<T> codec;
+    /**
+     * The codecs able to read the stored values, by identifier.
+     */
+    final Map<Byte, CacheCodec<T>> decoders = new HashMap<>();
+    int compressionThreshold;
+    RedisCacheMetrics metrics;
+    int scanCount;
+    long timeToLiveInMillis;
+    double timeToLiveJitter;
+    long negativeTimeToLiveInMillis;
+    long loadLockTimeToLiveInMillis;
+    long loadLockPollIntervalInMillis;
+    long generationTimeToLiveInMillis;
+    double refreshAheadBeta;
+    boolean writeThrough;
+    /**
+     * The moving average of the loader duration, which sets how early the entries are refreshed.
+     * It starts with a guess, until a load is measured on this node.
+     */
+    volatile double averageLoadMillis = 50;
+    /**
+     * Runs the refreshes ahead of expiration.
+     */
+    Executor refreshExecutor;
+    /**
+     * The loads currently running on this node, by key.
+     */
+    final Map<String, CompletableFuture<T>> loadsInFlight = new ConcurrentHashMap<>();
+    /**
+     * The keys currently refreshed ahead of expiration on this node.
+     */
+    final Set<String> refreshesInFlight = ConcurrentHashMap.newKeySet();
+    /**
+     * UNLINK frees the memory in background but is only available since Redis 4, DEL is used otherwise.
+     */
+    volatile boolean unlinkSupported = true;
 
     public RedisCache(String prefix) {
         this.type = (Class<T>) ((ParameterizedType) getClass().getGenericSuperclass()).getActualTypeArguments()[0];
         this.prefix = prefix;
+        this.name = prefix.replaceAll("[^A-Za-z0-9]", "").toLowerCase(Locale.ENGLISH);
+        this.invalidationChannel = "cache-invalidation:" + prefix;
+    }
+
+    @PostConstruct
+    void init() {
+        this.codec = createCodec();
+        this.decoders.put(JsonCacheCodec.ID, new JsonCacheCodec<>(objectMapper, type));
+        this.decoders.put(SmileCacheCodec.ID, new SmileCacheCodec<>(type));
+        this.decoders.put(codec.id(), codec);
+        this.compressionThreshold = option("compression.threshold-in-bytes", Integer.class, 0);
+        this.metrics = new RedisCacheMetrics(registry, name);
+        this.scanCount = option("scan-count", Integer.class, 100);
+        this.timeToLiveInMillis = TimeUnit.SECONDS.toMillis(option("time-to-live-in-seconds", Long.class, 0L));
+        this.timeToLiveJitter = option("time-to-live-jitter", Double.class, 0d);
+        this.negativeTimeToLiveInMillis = TimeUnit.SECONDS.toMillis(option("negative-time-to-live-in-seconds", Long.class, 0L));
+        this.loadLockTimeToLiveInMillis = option("load-lock.time-to-live-in-millis", Long.class, 0L);
+        this.loadLockPollIntervalInMillis = option("load-lock.poll-interval-in-millis", Long.class, 20L);
+        this.generationTimeToLiveInMillis = TimeUnit.SECONDS.toMillis(option("generation.time-to-live-in-seconds", Long.class, 60L));
+        this.refreshAheadBeta = option("refresh-ahead.beta", Double.class, 0d);
+        this.writeThrough = option("write-through", Boolean.class, false);
+        this.refreshExecutor = Infrastructure.getDefaultWorkerPool();
+        this.nearCache =
+            new NearCache<>(option("near-cache.max-entries", Integer.class, 0), option("near-cache.time-to-live-in-millis", Long.class, 0L));
+
+        this.timeout = Duration.ofMillis(option("timeout-in-millis", Long.class, 1000L));
+        this.evictionRetryDelayInMillis = option("circuit-breaker.open-duration-in-millis", Long.class, 5000L);
+        this.circuitBreaker =
+            new CircuitBreaker(
+                option("circuit-breaker.failure-threshold", Integer.class, 5),
+                evictionRetryDelayInMillis,
+                // a probe can't take longer than the timeout of the commands, unless it was cancelled
+                timeout.toMillis()
+            );
+        this.fallbackCache =
+            new NearCache<>(
+                option("circuit-breaker.fallback.max-entries", Integer.class, 1000),
+                option("circuit-breaker.fallback.time-to-live-in-millis", Long.class, 10000L)
+            );
+        metrics.circuitState(circuitBreaker);
+        int topSize = option("hot-keys.top-size", Integer.class, 0);
+        this.hotKeys =
+            new HotKeySketch(topSize, option("hot-keys.sketch-width", Integer.class, 1024), option("hot-keys.window", Long.class, 10000L));
+        this.pinThreshold = option("hot-keys.pin-threshold", Integer.class, 0);
+        this.pinnedCache =
+            new NearCache<>(pinThreshold > 0 ? topSize : 0, option("hot-keys.pin-time-to-live-in-millis", Long.class, 1000L));
+
+        if (isLocallyCached()) {
+            invalidationListener.subscribe(invalidationChannel, this::onInvalidation, this::clearLocally);
+        }
+    }
+
+    /**
+     * @return the name of the cache, used in its configuration and metrics
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the most read keys with their estimated number of reads, the most read first
+     * (none when hot-keys.top-size is 0)
+     */
+    public List<Map.Entry<String, Integer>> getHotKeys() {
+        return hotKeys.top();
+    }
+
+    /**
+     * @param key a key of the cache
+     * @return true if the key is hot and its value is pinned in memory
+     */
+    public boolean isPinned(String key) {
+        return pinnedCache.get(key) != null;
+    }
+
+    /**
+     * @return the state of the circuit breaker protecting the callers from a failing Redis
+     */
+    public CircuitBreaker.State getCircuitState() {
+        return circuitBreaker.getState();
+    }
+
+    /**
+     * The services can write the objects they update through the cache once their transaction is committed,
+     * instead of evicting them, see RedisCacheTransactions:
+     * - write-through: true to let the services write the objects through (false by default)
+     *
+     * @return true if the updated objects should be written through the cache, rather than evicted
+     */
+    public boolean isWriteThrough() {
+        return writeThrough;
+    }
+
+    /**
+     * Create the codec used to write the values, identified by the first byte of the stored values:
+     * - codec: "json" (the default) or "smile", a binary JSON which is smaller and faster to parse
+     * Override it to use another codec, e.g. a ByteArrayCacheCodec for a cache of byte[].
+     * The values written by the previous codec are still read, so the codec can be changed without flushing Redis.
+     *
+     * @return The codec used to write the values
+     */
+    protected CacheCodec<T> createCodec() {
+        String codecName = option("codec", String.class, "json");
+        switch (codecName) {
+            case "json":
+                return new JsonCacheCodec<>(objectMapper, type);
+            case "smile":
+                return new SmileCacheCodec<>(type);
+            default:
+                throw new IllegalArgumentException("Unknown codec " + codecName + " for the cache " + name);
+        }
+    }
+
+    /**
+     * Read a configuration value of this cache.
+     *
+     * @param key the property name, relative to "jhipster.cache.[name]."
+     * @param type the type of the value
+     * @param defaultValue the value used when the property is not defined
+     * @return The configured value or the default one
+     */
+    final <V> V option(String key, Class<V> type, V defaultValue) {
+        return config.getOptionalValue("jhipster.cache." + name + "." + key, type).orElse(defaultValue);
     }
 
     /**
@@ -56,6 +323,8 @@ public abstract class RedisCache<T> {
 
     /**
      * Return the value in the cache or launch the Supplier lambda if no value is present in the cache.
+     * While a value is loaded, the other callers asking for the same identifier wait for it instead of
+     * running their own loader.
      *
      * @param identifier the unique object's identifier to store
      * @param valueLoader a lambda used to load the value in case cache is empty
@@ -65,23 +334,729 @@ public abstract class RedisCache<T> {
         if (identifier == null) {
             throw new NullPointerException(NULL_KEYS_NOT_SUPPORTED_MSG);
         }
-        T result;
+        String key = generateKey(identifier);
+        T result = getLocally(key);
+
+        if (result != null) {
+            return Optional.of(result);
+        }
 
         try {
-            String key = generateKey(identifier);
-            result = deserialize(redis.get(key));
-        } catch (JsonProcessingException e) {
-            throw new CacheErrorException(e);
+            BiConsumer<T, String> store = (value, generation) -> this.store(key, generation, key, value);
+            Optional<T> cached = isRefreshAheadEnabled() && valueLoader != null ? readAndRefresh(key, valueLoader, store) : read(key);
+
+            if (cached != null) {
+                metrics.redisHits.increment();
+                return cached;
+            }
+            metrics.misses.increment();
+            if (valueLoader == null) {
+                return Optional.empty();
+            }
+
+            return Optional.ofNullable(load(key, valueLoader, store));
+        } catch (CacheErrorException e) {
+            return Optional.ofNullable(loadWithoutRedis(key, valueLoader, e));
+        }
+    }
+
+    /**
+     * Return the value in the cache for a secondary identifier, or launch the Supplier lambda if no value is present.
+     * The loaded value is stored under its canonical identifier, and an alias pointing to it under the given one,
+     * so that the object is stored once whatever the identifier used to look it up. The alias is resolved by Redis
+     * in the same round trip, and evicting it only removes the pointer.
+     * Aliases are not kept in the near cache, which could not drop them when the canonical key is evicted.
+     *
+     * e.g. getByAlias(email, user -> user.login, () -> loadByEmail(email))
+     *
+     * @param alias the secondary identifier of the object
+     * @param canonicalIdentifier gives the identifier the object is stored under
+     * @param valueLoader a lambda used to load the value in case cache is empty
+     * @return The value found in the cache or retrieved by the supplier
+     */
+    public Optional<T> getByAlias(Object alias, Function<T, ?> canonicalIdentifier, Supplier<T> valueLoader) {
+        if (alias == null) {
+            throw new NullPointerException(NULL_KEYS_NOT_SUPPORTED_MSG);
+        }
+        String key = generateKey(alias);
+        try {
+            Optional<T> cached = decodeEntry(null, call("get-alias", fetch(key)).get(0));
+
+            if (cached != null) {
+                metrics.redisHits.increment();
+                return cached;
+            }
+            metrics.misses.increment();
+            if (valueLoader == null) {
+                return Optional.empty();
+            }
+
+            BiConsumer<T, String> store = (value, generation) -> {
+                String canonicalKey = value == null ? key : generateKey(canonicalIdentifier.apply(value));
+                this.store(key, generation, canonicalKey, value);
+            };
+            return Optional.ofNullable(load(key, valueLoader, store));
+        } catch (CacheErrorException e) {
+            return Optional.ofNullable(loadWithoutRedis(key, valueLoader, e));
+        }
+    }
+
+    /**
+     * Read a value from Redis, following it if it is an alias, and keep it in the near cache.
+     *
+     * @return The value, an empty Optional if a tombstone is stored for the key, or null if the key is not in Redis
+     */
+    Optional<T> read(String key) {
+        Response response = call("get", fetch(key));
+        return decodeEntry(isAliased(response.get(1)) ? null : key, response.get(0));
+    }
+
+    /**
+     * Same as read(), reading the time to live of the entry in the same round trip to refresh it if it expires soon.
+     * The entries read through an alias are not refreshed.
+     */
+    Optional<T> readAndRefresh(String key, Supplier<T> valueLoader, BiConsumer<T, String> store) {
+        Response response = call("get", reactiveRedis.eval(Arrays.asList(RedisScripts.GET_WITH_TIME_TO_LIVE, "1", key)));
+        Response value = response.get(0);
+        if (isAliased(response.get(2))) {
+            return decodeEntry(null, value);
+        }
+        if (value != null && !isTombstone(value) && shouldRefresh(response.get(1).toLong())) {
+            refresh(key, valueLoader, store);
+        }
+        return decodeEntry(key, value);
+    }
+
+    /**
+     * Read a value, whether it is stored as a string or as a hash, following it in the same round trip when it is
+     * an alias.
+     *
+     * @return a Uni giving the value and the flag read by isAliased()
+     */
+    Uni<Response> fetch(String key) {
+        return reactiveRedis.eval(Arrays.asList(RedisScripts.GET, "1", key));
+    }
+
+    /**
+     * @return true if the flag returned with a value by the scripts shows that the value was read through an alias
+     */
+    static boolean isAliased(Response flag) {
+        return flag != null && flag.toInteger() == 1;
+    }
+
+    boolean isRefreshAheadEnabled() {
+        return refreshAheadBeta > 0 && timeToLiveInMillis > 0;
+    }
+
+    /**
+     * Decide whether an entry about to expire should be refreshed ahead of time, so that hot entries never miss,
+     * with the XFetch algorithm: the probability is 1 when the entry expires, and decreases exponentially as the
+     * remaining time to live grows compared to the duration of a load. The current value is still served.
+     * - refresh-ahead.beta: how early entries are refreshed, 1 is a good start (disabled when 0, the default)
+     *
+     * @param remainingTimeToLiveInMillis the time to live of the entry, negative if it has no expiration
+     */
+    boolean shouldRefresh(long remainingTimeToLiveInMillis) {
+        if (remainingTimeToLiveInMillis < 0) {
+            return false;
+        }
+        return -averageLoadMillis * refreshAheadBeta * Math.log(ThreadLocalRandom.current().nextDouble()) >= remainingTimeToLiveInMillis;
+    }
+
+    /**
+     * Reload an entry in background, unless it is already being loaded on this node.
+     * The loader runs on a worker thread, outside of the caller's transaction.
+     */
+    void refresh(String key, Supplier<T> valueLoader, BiConsumer<T, String> store) {
+        if (loadsInFlight.containsKey(key) || !refreshesInFlight.add(key)) {
+            return;
+        }
+        metrics.refreshes.increment();
+        try {
+            refreshExecutor.execute(
+                () -> {
+                    try {
+                        loadAndStore(key, valueLoader, store);
+                    } catch (RuntimeException e) {
+                        log.warn("Could not refresh {}: {}", key, e.getMessage());
+                    } finally {
+                        refreshesInFlight.remove(key);
+                    }
+                }
+            );
+        } catch (RejectedExecutionException e) {
+            refreshesInFlight.remove(key);
+        }
+    }
+
+    /**
+     * Update the moving average of the loader duration.
+     */
+    void recordLoadTime(long nanos) {
+        averageLoadMillis = 0.8 * averageLoadMillis + 0.2 * nanos / 1_000_000d;
+    }
+
+    /**
+     * Count a read of a key, and return its value if this node keeps it in memory, in the near cache or pinned.
+     *
+     * The near cache keeps recently read entries in memory to avoid a Redis round trip:
+     * - near-cache.max-entries: the maximum number of entries kept in memory (disabled when 0, the default)
+     * - near-cache.time-to-live-in-millis: how long an entry is served from memory
+     * The most read keys are tracked with a frequency sketch, reported on /management/caches, and the hottest
+     * ones pinned in memory for a short time, so that they don't all hit the same Redis server:
+     * - hot-keys.top-size: the number of most read keys tracked (disabled when 0, the default)
+     * - hot-keys.sketch-width: the number of counters per row of the sketch, more is more accurate (1024 by default)
+     * - hot-keys.window: the number of reads after which the counts are halved, to forget the keys which cooled down
+     *   (10000 by default)
+     * - hot-keys.pin-threshold: the estimated number of reads within a window from which a tracked key is pinned
+     *   (disabled when 0, the default)
+     * - hot-keys.pin-time-to-live-in-millis: how long a pinned entry is served from memory (1000 by default)
+     * Both are dropped on every node when a key is evicted, see publishInvalidation(). The short time to live
+     * of the pinned entries bounds how stale they can be when another node writes them with set().
+     *
+     * @return the value, or null if it has to be read from Redis
+     */
+    T getLocally(String key) {
+        hotKeys.record(key);
+        T result = nearCache.get(key);
+        if (result != null) {
+            metrics.nearHits.increment();
+            return result;
+        }
+        result = pinnedCache.get(key);
+        if (result != null) {
+            metrics.pinnedHits.increment();
+        }
+        return result;
+    }
+
+    /**
+     * Keep a value read or written by this node in the near cache. A pinned value is dropped, it is pinned
+     * again on the next read from Redis.
+     */
+    void putLocally(String key, T value) {
+        nearCache.put(key, value);
+        pinnedCache.invalidate(Collections.singletonList(key));
+    }
+
+    boolean isLocallyCached() {
+        return nearCache.isEnabled() || pinnedCache.isEnabled();
+    }
+
+    void invalidateLocally(Collection<String> keys) {
+        nearCache.invalidate(keys);
+        pinnedCache.invalidate(keys);
+        fallbackCache.invalidate(keys);
+    }
+
+    void clearLocally() {
+        nearCache.clear();
+        pinnedCache.clear();
+        fallbackCache.clear();
+    }
+
+    /**
+     * Decode a value read from Redis and keep it in the near cache, or pin it if the key is hot.
+     *
+     * @param key the key to keep the value under, or null if it was read through an alias
+     */
+    Optional<T> decodeEntry(String key, Response response) {
+        if (response == null) {
+            return null;
+        }
+        if (isTombstone(response)) {
+            return Optional.empty();
         }
 
-        if (result == null && valueLoader != null) {
-            result = valueLoader.get();
-            this.set(identifier, result);
+        T result = deserialize(response);
+        if (key != null) {
+            nearCache.put(key, result);
+            if (pinThreshold > 0 && hotKeys.count(key) >= pinThreshold) {
+                pinnedCache.put(key, result);
+            }
         }
 
         return Optional.ofNullable(result);
     }
 
+    static boolean isTombstone(Response response) {
+        if (response == null || response.type() != ResponseType.BULK) {
+            return false;
+        }
+        byte[] data = response.toBytes();
+        return data.length == 1 && data[0] == 0;
+    }
+
+    /**
+     * Run the loader once per key on this node: a caller asking for a key which is already being loaded
+     * waits for the running load.
+     */
+    T load(String key, Supplier<T> valueLoader, BiConsumer<T, String> store) {
+        return coalesce(key, () -> loadLocked(key, valueLoader, store));
+    }
+
+    /**
+     * Run a load of a key, unless the key is already being loaded on this node, whether from Redis or while
+     * Redis fails, in which case wait for the running load instead.
+     */
+    T coalesce(String key, Supplier<T> loader) {
+        CompletableFuture<T> load = new CompletableFuture<>();
+        CompletableFuture<T> runningLoad = loadsInFlight.putIfAbsent(key, load);
+
+        if (runningLoad != null) {
+            return join(runningLoad);
+        }
+
+        try {
+            T result = loader.get();
+            load.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            loadsInFlight.remove(key, load);
+        }
+    }
+
+    /**
+     * Wait for a load run by another caller, rethrowing its failure.
+     */
+    private T join(CompletableFuture<T> load) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new CacheErrorException(e.getCause());
+        }
+    }
+
+    /**
+     * Run the loader and store its result. When the load lock is enabled, only the node holding the lock
+     * runs the loader, the others poll Redis until the value is stored or the lock is released:
+     * - load-lock.time-to-live-in-millis: how long a node may hold the lock while loading (disabled when 0, the default)
+     * - load-lock.poll-interval-in-millis: how often the other nodes check for the loaded value (20 by default)
+     */
+    T loadLocked(String key, Supplier<T> valueLoader, BiConsumer<T, String> store) {
+        if (loadLockTimeToLiveInMillis <= 0) {
+            return loadAndStore(key, valueLoader, store);
+        }
+
+        String lockKey = "lock:" + key;
+        String token = UUID.randomUUID().toString();
+        Response acquired = call(
+            "lock",
+            reactiveRedis.set(Arrays.asList(lockKey, token, "NX", "PX", String.valueOf(loadLockTimeToLiveInMillis)))
+        );
+
+        if (acquired != null) {
+            try {
+                return loadAndStore(key, valueLoader, store);
+            } finally {
+                try {
+                    call("unlock", reactiveRedis.eval(Arrays.asList(RedisScripts.RELEASE_LOCK, "1", lockKey, token)));
+                } catch (CacheErrorException e) {
+                    log.debug("Could not release the load lock of {}, it will expire: {}", key, e.getMessage());
+                }
+            }
+        }
+
+        long deadline = System.currentTimeMillis() + loadLockTimeToLiveInMillis;
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(loadLockPollIntervalInMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            Optional<T> cached = read(key);
+            if (cached != null) {
+                return cached.orElse(null);
+            }
+            if (call("lock", reactiveRedis.exists(Collections.singletonList(lockKey))).toInteger() == 0) {
+                break;
+            }
+        }
+
+        return loadAndStore(key, valueLoader, store);
+    }
+
+    /**
+     * Run the loader, then store its result with the generation of the key read before the load.
+     * The loaded value is returned even if Redis fails to store it.
+     */
+    private T loadAndStore(String key, Supplier<T> valueLoader, BiConsumer<T, String> store) {
+        String generation = generation(call("generation", reactiveRedis.get(generationKey(key))));
+        long start = System.nanoTime();
+        T result = metrics.load(valueLoader);
+        recordLoadTime(System.nanoTime() - start);
+        try {
+            store.accept(result, generation);
+        } catch (CacheErrorException e) {
+            log.debug("Could not cache {}: {}", key, e.getMessage());
+        }
+        return result;
+    }
+
+    /**
+     * Serve a value when Redis fails or the circuit is open: from the values loaded locally since Redis failed,
+     * or from the loader. The loads are coalesced like the ones from Redis, so that an outage doesn't send
+     * every concurrent miss to the database.
+     * - circuit-breaker.fallback.max-entries: the number of values kept locally while Redis fails (1000 by default)
+     * - circuit-breaker.fallback.time-to-live-in-millis: how long such a value is served (10000 by default)
+     *
+     * @param valueLoader the loader, or null to look in the local values only
+     * @param cause the failure of Redis
+     */
+    T loadWithoutRedis(String key, Supplier<T> valueLoader, CacheErrorException cause) {
+        metrics.fallbacks.increment();
+        log.debug("Redis failed for {}, falling back to the loader: {}", key, cause.getMessage());
+        T result = fallbackCache.get(key);
+        if (result != null || valueLoader == null) {
+            return result;
+        }
+        return coalesce(
+            key,
+            () -> {
+                T value = metrics.load(valueLoader);
+                fallbackCache.put(key, value);
+                return value;
+            }
+        );
+    }
+
+    /**
+     * A loaded value is stored only if its key has not been evicted since the load started: evict() increments
+     * this counter, which store() compares with the one read before the load, so that a loader reading the
+     * database just before an update can't cache the stale object. clear() doesn't increment the counters,
+     * and the values written by set() and getAll() are not compared.
+     * - generation.time-to-live-in-seconds: how long a counter is kept after the last eviction, it must be longer
+     *   than the slowest load (60 by default)
+     *
+     * @return the key of the counter incremented each time the given key is evicted
+     */
+    static String generationKey(String key) {
+        return "generation:" + key;
+    }
+
+    /**
+     * @return the key of the version of the last object written through the given key
+     */
+    static String versionKey(String key) {
+        return "version:" + key;
+    }
+
+    /**
+     * Give the version of an object, incremented by each update of the object, e.g. its JPA @Version.
+     * The write-through never replaces a cached object with an older version, should the writes of two
+     * transactions reach Redis out of order. The objects are not versioned by default, their writes are
+     * then applied in the order they reach Redis.
+     *
+     * @return the version of the object, or null if it is not versioned
+     */
+    protected Long version(T value) {
+        return null;
+    }
+
+    /**
+     * @return the generation read from Redis, "0" if the key has never been evicted
+     */
+    static String generation(Response response) {
+        return response == null ? "0" : response.toString();
+    }
+
+    /**
+     * Store a loaded value, or a tombstone if nothing was loaded and negative caching is enabled,
+     * unless the key has been evicted during the load.
+     * A tombstone keeps the lookups for missing objects (e.g. logins of unknown users) from reaching the database
+     * every time, until evict() removes it when the object is created:
+     * - negative-time-to-live-in-seconds: the time to live of a tombstone (disabled when 0, the default)
+     *
+     * @param loadedKey the key the value was loaded for
+     * @param generation the generation of the loadedKey read before the load
+     * @param key the key to store the value under: the loadedKey, or the canonical key if loadedKey is an alias
+     * @param value the loaded value
+     */
+    void store(String loadedKey, String generation, String key, T value) {
+        if (value == null && negativeTimeToLiveInMillis <= 0) {
+            return;
+        }
+        Response stored = send("set", storeRequest(loadedKey, generation, key, value));
+
+        if (stored.toInteger() == 0) {
+            log.debug("Not caching {}, it has been evicted during the load", loadedKey);
+        } else if (value != null) {
+            putLocally(key, value);
+        }
+    }
+
+    /**
+     * Build the command storing a loaded value, or a tombstone, only if the generation of the loadedKey is the given one.
+     * When the value is stored under another key than the loadedKey, the loadedKey is an alias pointing to it.
+     */
+    Request storeRequest(String loadedKey, String generation, String key, T value) {
+        Request request = Request.cmd(Command.EVAL).arg(RedisScripts.SET_ALL_IF_GENERATION);
+        if (value == null) {
+            return request
+                .arg("2")
+                .arg(generationKey(loadedKey))
+                .arg(loadedKey)
+                .arg(generation)
+                .arg(TOMBSTONE)
+                .arg(String.valueOf(negativeTimeToLiveInMillis));
+        }
+
+        String timeToLive = String.valueOf(timeToLiveInMillis > 0 ? nextTimeToLive() : 0);
+        if (loadedKey.equals(key)) {
+            return request.arg("2").arg(generationKey(loadedKey)).arg(key).arg(generation).arg(serialize(value)).arg(timeToLive);
+        }
+
+        return request
+            .arg("3")
+            .arg(generationKey(loadedKey))
+            .arg(key)
+            .arg(loadedKey)
+            .arg(generation)
+            .arg(serialize(value))
+            .arg(timeToLive)
+            .arg(aliasTo(key))
+            .arg(timeToLive);
+    }
+
+    /**
+     * @return the value of an alias pointing to the given key
+     */
+    static byte[] aliasTo(String key) {
+        byte[] pointer = key.getBytes(StandardCharsets.UTF_8);
+        byte[] alias = new byte[pointer.length + 1];
+        alias[0] = ALIAS;
+        System.arraycopy(pointer, 0, alias, 1, pointer.length);
+        return alias;
+    }
+
+    /**
+     * Build the command storing objects written to the database and the aliases pointing to them.
+     * The generation of every key is incremented, so that the loads which read the objects before
+     * the write can't store them. A versioned object, and its aliases, are skipped when a newer version
+     * was written, see version().
+     *
+     * @param values the values, by key
+     * @param aliases the keys the values are stored under, by alias key
+     */
+    Request writeRequest(Map<String, T> values, Map<String, String> aliases) {
+        List<String> keys = new ArrayList<>();
+        List<String> versionKeys = new ArrayList<>();
+        List<byte[]> arguments = new ArrayList<>();
+        values.forEach(
+            (key, value) -> {
+                keys.add(key);
+                versionKeys.add(versionKey(key));
+                arguments.add(serialize(value));
+                arguments.add(String.valueOf(timeToLiveInMillis > 0 ? nextTimeToLive() : 0).getBytes(StandardCharsets.UTF_8));
+                arguments.add(versionArgument(value));
+            }
+        );
+        aliases.forEach(
+            (aliasKey, key) -> {
+                // an alias is versioned by the object it points to
+                keys.add(aliasKey);
+                versionKeys.add(versionKey(key));
+                arguments.add(aliasTo(key));
+                arguments.add(String.valueOf(timeToLiveInMillis).getBytes(StandardCharsets.UTF_8));
+                arguments.add(versionArgument(values.get(key)));
+            }
+        );
+
+        Request request = Request.cmd(Command.EVAL).arg(RedisScripts.WRITE).arg(String.valueOf(keys.size() * 3));
+        keys.forEach(request::arg);
+        keys.forEach(key -> request.arg(generationKey(key)));
+        versionKeys.forEach(request::arg);
+        request.arg(String.valueOf(generationTimeToLiveInMillis));
+        arguments.forEach(request::arg);
+        return request;
+    }
+
+    /**
+     * @return the version of an object as a script argument, empty if it is not versioned
+     */
+    byte[] versionArgument(T value) {
+        Long version = value != null ? version(value) : null;
+        return (version != null ? String.valueOf(version) : "").getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Send a command built by writeRequest(), then update the near caches. When a value was skipped for a newer
+     * one, the values are dropped from the near cache instead, to be read again from Redis.
+     */
+    void write(Request request, Map<String, T> values, Map<String, String> aliases) {
+        int skipped = send("write", request).toInteger();
+        List<String> keys = new ArrayList<>(values.keySet());
+        keys.addAll(aliases.keySet());
+        if (skipped > 0) {
+            log.debug("Not writing {} values through the cache {}, newer versions were written", skipped, name);
+            invalidateLocally(keys);
+        } else {
+            values.forEach(this::putLocally);
+        }
+        publishInvalidation(keys);
+    }
+
+    /**
+     * Return the values in the cache for all the given identifiers, in a single round trip.
+     * The identifiers missing from the cache are loaded at once by the bulkLoader, then stored in the cache.
+     *
+     * @param identifiers the unique objects' identifiers to retrieve
+     * @param bulkLoader a lambda used to load the missing values, it receives the missing identifiers
+     * @return The values found in the cache or retrieved by the bulkLoader, by identifier
+     */
+    public <K> Map<K, T> getAll(Collection<K> identifiers, Function<Set<K>, Map<K, T>> bulkLoader) {
+        if (identifiers == null || identifiers.stream().anyMatch(Objects::isNull)) {
+            throw new NullPointerException(NULL_KEYS_NOT_SUPPORTED_MSG);
+        }
+        Map<K, T> result = new LinkedHashMap<>();
+        List<K> remoteIdentifiers = new ArrayList<>();
+
+        for (K identifier : new LinkedHashSet<>(identifiers)) {
+            T value = nearCache.get(generateKey(identifier));
+            if (value != null) {
+                metrics.nearHits.increment();
+                result.put(identifier, value);
+            } else {
+                remoteIdentifiers.add(identifier);
+            }
+        }
+        if (remoteIdentifiers.isEmpty()) {
+            return result;
+        }
+
+        Set<K> missingIdentifiers = new LinkedHashSet<>();
+        List<String> remoteKeys = remoteIdentifiers.stream().map(this::generateKey).collect(Collectors.toList());
+        Response values;
+        try {
+            List<String> arguments = new ArrayList<>();
+            arguments.add(RedisScripts.GET_ALL);
+            arguments.add(String.valueOf(remoteKeys.size()));
+            arguments.addAll(remoteKeys);
+            values = call("get-all", reactiveRedis.eval(arguments));
+        } catch (CacheErrorException e) {
+            return loadAllWithoutRedis(remoteIdentifiers, bulkLoader, result, e);
+        }
+        for (int i = 0; i < remoteIdentifiers.size(); i++) {
+            K identifier = remoteIdentifiers.get(i);
+            Response response = values.get(i * 2);
+            boolean aliased = isAliased(values.get(i * 2 + 1));
+            if (isTombstone(response)) {
+                metrics.redisHits.increment();
+                continue;
+            }
+            T value = deserialize(response);
+            if (value != null) {
+                metrics.redisHits.increment();
+                if (!aliased) {
+                    nearCache.put(generateKey(identifier), value);
+                }
+                result.put(identifier, value);
+            } else {
+                metrics.misses.increment();
+                missingIdentifiers.add(identifier);
+            }
+        }
+
+        if (!missingIdentifiers.isEmpty() && bulkLoader != null) {
+            Map<K, T> loaded = metrics.load(() -> bulkLoader.apply(missingIdentifiers));
+            Map<K, T> found = new LinkedHashMap<>();
+            if (loaded != null) {
+                loaded.forEach(
+                    (identifier, value) -> {
+                        if (value != null) {
+                            found.put(identifier, value);
+                        }
+                    }
+                );
+            }
+            missingIdentifiers.removeAll(found.keySet());
+            try {
+                this.setAll(found, negativeTimeToLiveInMillis > 0 ? missingIdentifiers : Collections.emptySet());
+            } catch (CacheErrorException e) {
+                log.debug("Could not cache {} values: {}", found.size(), e.getMessage());
+            }
+            result.putAll(found);
+        }
+
+        return result;
+    }
+
+    /**
+     * Same as loadWithoutRedis() for getAll(): the identifiers already being loaded on this node are waited for,
+     * the others are loaded at once by the bulkLoader.
+     *
+     * @param result the values already found, completed with the ones found locally or loaded
+     */
+    private <K> Map<K, T> loadAllWithoutRedis(
+        List<K> identifiers,
+        Function<Set<K>, Map<K, T>> bulkLoader,
+        Map<K, T> result,
+        CacheErrorException cause
+    ) {
+        metrics.fallbacks.increment();
+        log.debug("Redis failed for {} keys, falling back to the loader: {}", identifiers.size(), cause.getMessage());
+        Set<K> missingIdentifiers = new LinkedHashSet<>();
+        for (K identifier : identifiers) {
+            T value = fallbackCache.get(generateKey(identifier));
+            if (value != null) {
+                result.put(identifier, value);
+            } else {
+                missingIdentifiers.add(identifier);
+            }
+        }
+        if (missingIdentifiers.isEmpty() || bulkLoader == null) {
+            return result;
+        }
+
+        Map<K, CompletableFuture<T>> runningLoads = new LinkedHashMap<>();
+        Map<K, CompletableFuture<T>> loads = new LinkedHashMap<>();
+        for (K identifier : missingIdentifiers) {
+            CompletableFuture<T> load = new CompletableFuture<>();
+            CompletableFuture<T> runningLoad = loadsInFlight.putIfAbsent(generateKey(identifier), load);
+            if (runningLoad != null) {
+                runningLoads.put(identifier, runningLoad);
+            } else {
+                loads.put(identifier, load);
+            }
+        }
+        if (!loads.isEmpty()) {
+            try {
+                Map<K, T> loaded = metrics.load(() -> bulkLoader.apply(new LinkedHashSet<>(loads.keySet())));
+                loads.forEach(
+                    (identifier, load) -> {
+                        T value = loaded != null ? loaded.get(identifier) : null;
+                        if (value != null) {
+                            fallbackCache.put(generateKey(identifier), value);
+                            result.put(identifier, value);
+                        }
+                        load.complete(value);
+                    }
+                );
+            } catch (RuntimeException | Error e) {
+                loads.values().forEach(load -> load.completeExceptionally(e));
+                throw e;
+            } finally {
+                loads.forEach((identifier, load) -> loadsInFlight.remove(generateKey(identifier), load));
+            }
+        }
+        runningLoads.forEach(
+            (identifier, load) -> {
+                T value = join(load);
+                if (value != null) {
+                    result.put(identifier, value);
+                }
+            }
+        );
+        return result;
+    }
+
     /**
      * Store an object in the cache.
      *
@@ -97,22 +1072,169 @@ public abstract class RedisCache<T> {
         }
         String key = generateKey(identifier);
 
-        try {
-            redis.set(Arrays.asList(key, serialize(value)));
-        } catch (JsonProcessingException e) {
-            throw new CacheErrorException(e);
+        send("set", setRequest(key, value));
+        putLocally(key, value);
+    }
+
+    /**
+     * Build the command storing a value, with a script when it is written as a hash.
+     */
+    Request setRequest(String key, T value) {
+        byte[] data = serialize(value);
+        if (isHash(data)) {
+            return Request
+                .cmd(Command.EVAL)
+                .arg(RedisScripts.SET_ALL)
+                .arg("1")
+                .arg(key)
+                .arg(data)
+                .arg(String.valueOf(timeToLiveInMillis > 0 ? nextTimeToLive() : 0));
+        }
+        Request request = Request.cmd(Command.SET).arg(key).arg(data);
+        if (timeToLiveInMillis > 0) {
+            request.arg("PX").arg(String.valueOf(nextTimeToLive()));
         }
+        return request;
     }
 
     /**
-     * Remove all entries in the cache according to keys returned by the keys() method.
+     * @return true if the serialized value is written as a hash
      */
-    public void clear() {
-        List<String> currentKeys = keys();
+    static boolean isHash(byte[] data) {
+        return data != null && data.length > 0 && data[0] == HASH;
+    }
+
+    /**
+     * Store several objects in the cache in a single round trip (MSET, or a script setting the expirations or writing
+     * hashes).
+     * Null values are ignored.
+     *
+     * @param values the values to store, by unique identifier (could not be null)
+     */
+    public void setAll(Map<?, T> values) {
+        if (values == null || values.keySet().stream().anyMatch(Objects::isNull)) {
+            throw new NullPointerException(NULL_KEYS_NOT_SUPPORTED_MSG);
+        }
+        this.setAll(values, Collections.emptySet());
+    }
+
+    /**
+     * Store several objects, and tombstones for the absent identifiers, in a single round trip.
+     */
+    void setAll(Map<?, T> values, Set<?> absentIdentifiers) {
+        List<String> keys = new ArrayList<>();
+        List<byte[]> data = new ArrayList<>();
+        List<Long> timesToLive = new ArrayList<>();
+
+        for (Map.Entry<?, T> entry : values.entrySet()) {
+            if (entry.getValue() != null) {
+                keys.add(generateKey(entry.getKey()));
+                data.add(serialize(entry.getValue()));
+                timesToLive.add(timeToLiveInMillis > 0 ? nextTimeToLive() : 0);
+            }
+        }
+        for (Object identifier : absentIdentifiers) {
+            keys.add(generateKey(identifier));
+            data.add(TOMBSTONE.getBytes(StandardCharsets.UTF_8));
+            timesToLive.add(negativeTimeToLiveInMillis);
+        }
+        if (keys.isEmpty()) {
+            return;
+        }
+
+        Request request;
+        if (timeToLiveInMillis > 0 || !absentIdentifiers.isEmpty() || data.stream().anyMatch(RedisCache::isHash)) {
+            request = Request.cmd(Command.EVAL).arg(RedisScripts.SET_ALL).arg(String.valueOf(keys.size()));
+            keys.forEach(request::arg);
+            for (int i = 0; i < keys.size(); i++) {
+                request.arg(data.get(i)).arg(String.valueOf(timesToLive.get(i)));
+            }
+        } else {
+            request = Request.cmd(Command.MSET);
+            for (int i = 0; i < keys.size(); i++) {
+                request.arg(keys.get(i)).arg(data.get(i));
+            }
+        }
+        send("set-all", request);
+        values.forEach((identifier, value) -> putLocally(generateKey(identifier), value));
+    }
+
+    /**
+     * Store several objects read from the database ahead of their first lookup, with the aliases pointing to them,
+     * in a single round trip. A key is skipped when it already has a value, or when it has been evicted or
+     * written during the last generation.time-to-live-in-seconds: the object read may then be outdated, and
+     * is left to be loaded on demand, as are its aliases. The near cache is not filled, to keep it for the
+     * entries actually read.
+     *
+     * @param values the values to store, by unique identifier (could not be null)
+     * @param aliasIdentifier a lambda returning the alias of a value (null for none), or null to store no alias
+     * @return the number of keys stored, values and aliases
+     */
+    public int preload(Map<?, T> values, Function<T, ?> aliasIdentifier) {
+        byte[] noTarget = "0".getBytes(StandardCharsets.UTF_8);
+        if (values == null || values.keySet().stream().anyMatch(Objects::isNull)) {
+            throw new NullPointerException(NULL_KEYS_NOT_SUPPORTED_MSG);
+        }
+        List<String> keys = new ArrayList<>();
+        List<byte[]> arguments = new ArrayList<>();
+        values.forEach(
+            (identifier, value) -> {
+                if (value == null) {
+                    return;
+                }
+                String key = generateKey(identifier);
+                keys.add(key);
+                arguments.add(serialize(value));
+                arguments.add(String.valueOf(timeToLiveInMillis > 0 ? nextTimeToLive() : 0).getBytes(StandardCharsets.UTF_8));
+                arguments.add(noTarget);
+                int position = keys.size();
+                Object alias = aliasIdentifier != null ? aliasIdentifier.apply(value) : null;
+                if (alias != null && !key.equals(generateKey(alias))) {
+                    keys.add(generateKey(alias));
+                    arguments.add(aliasTo(key));
+                    arguments.add(String.valueOf(timeToLiveInMillis).getBytes(StandardCharsets.UTF_8));
+                    arguments.add(String.valueOf(position).getBytes(StandardCharsets.UTF_8));
+                }
+            }
+        );
+        if (keys.isEmpty()) {
+            return 0;
+        }
+
+        Request request = Request.cmd(Command.EVAL).arg(RedisScripts.SET_ALL_IF_ABSENT).arg(String.valueOf(keys.size() * 2));
+        keys.forEach(request::arg);
+        keys.forEach(key -> request.arg(generationKey(key)));
+        arguments.forEach(request::arg);
+        return send("preload", request).toInteger();
+    }
 
-        if (!currentKeys.isEmpty()) {
-            redis.del(keys());
+    /**
+     * Entries can expire, to bound the memory used by entries which are not read anymore:
+     * - time-to-live-in-seconds: the time to live of an entry (no expiration when 0, the default)
+     * - time-to-live-jitter: the fraction of the time to live randomly added to each entry, so that entries
+     *   stored together don't expire together (0 by default, e.g. 0.1 for up to 10%)
+     *
+     * @return the time to live in milliseconds of an entry stored now, including the random jitter
+     */
+    long nextTimeToLive() {
+        if (timeToLiveJitter <= 0) {
+            return timeToLiveInMillis;
         }
+        return timeToLiveInMillis + (long) (timeToLiveInMillis * timeToLiveJitter * ThreadLocalRandom.current().nextDouble());
+    }
+
+    /**
+     * Remove all entries in the cache, batch after batch of keys returned by the scan() method.
+     */
+    public void clear() {
+        clearLocally();
+        scan(
+            keys -> {
+                delete(keys);
+                metrics.evictions.increment(keys.size());
+            }
+        );
+        publishInvalidation(null);
     }
 
     /**
@@ -135,9 +1257,88 @@ public abstract class RedisCache<T> {
         if (identifiers == null) {
             throw new NullPointerException(NULL_KEYS_NOT_SUPPORTED_MSG);
         }
-        List<String> finalKeys = identifiers.stream().filter(Objects::nonNull).map(this::generateKey).collect(Collectors.toList());
+        this.evictKeys(identifiers.stream().filter(Objects::nonNull).map(this::generateKey).collect(Collectors.toList()));
+    }
+
+    /**
+     * Remove the given keys, increment their generation, and notify the other nodes.
+     * The local copies are dropped again once Redis removed the keys: a read of this node running meanwhile may
+     * have kept the previous value, and the invalidation published is ignored by this node.
+     */
+    void evictKeys(List<String> keys) {
+        invalidateLocally(keys);
+        if (!keys.isEmpty()) {
+            List<String> arguments = new ArrayList<>();
+            arguments.add(RedisScripts.EVICT);
+            arguments.add(String.valueOf(keys.size() * 2));
+            arguments.addAll(keys);
+            keys.forEach(key -> arguments.add(generationKey(key)));
+            arguments.add(String.valueOf(generationTimeToLiveInMillis));
+            try {
+                call("delete", reactiveRedis.eval(arguments));
+            } finally {
+                invalidateLocally(keys);
+            }
+        }
+        metrics.evictions.increment(keys.size());
+        publishInvalidation(keys);
+    }
 
-        redis.del(finalKeys);
+    /**
+     * Keep keys whose eviction failed, e.g. after a commit while Redis was unavailable, to evict them again as soon
+     * as Redis answers, when the invalidation connection is re-established, and every open-duration-in-millis
+     * until they are evicted. Until then the other nodes may read the previous values from Redis.
+     */
+    void evictLater(Collection<String> keys) {
+        pendingEvictions.addAll(keys);
+        if (evictionRetryOnReconnect.compareAndSet(false, true)) {
+            invalidationListener.onReconnect(this::retryEvictions);
+        }
+        retryEvictionsLater();
+    }
+
+    /**
+     * Evict again, on a worker thread, the keys kept by evictLater().
+     */
+    void retryEvictions() {
+        if (pendingEvictions.isEmpty() || !evictionRetryRunning.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(this::evictPendingKeys);
+        } catch (RejectedExecutionException e) {
+            evictionRetryRunning.set(false);
+            retryEvictionsLater();
+        }
+    }
+
+    private void retryEvictionsLater() {
+        if (pendingEvictions.isEmpty() || !evictionRetryScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        CompletableFuture.runAsync(
+            () -> {
+                evictionRetryScheduled.set(false);
+                retryEvictions();
+            },
+            CompletableFuture.delayedExecutor(evictionRetryDelayInMillis, TimeUnit.MILLISECONDS, refreshExecutor)
+        );
+    }
+
+    private void evictPendingKeys() {
+        // the keys are taken before being evicted, so that a key failing again meanwhile is evicted again later
+        List<String> keys = new ArrayList<>(pendingEvictions);
+        pendingEvictions.removeAll(keys);
+        try {
+            evictKeys(keys);
+            log.info("Evicted {} keys of the cache {} which could not be evicted before", keys.size(), name);
+        } catch (RuntimeException e) {
+            pendingEvictions.addAll(keys);
+            log.debug("Could not evict {} keys of the cache {} yet: {}", keys.size(), name, e.getMessage());
+        } finally {
+            evictionRetryRunning.set(false);
+        }
+        retryEvictionsLater();
     }
 
     /**
@@ -147,22 +1348,272 @@ public abstract class RedisCache<T> {
      * @return A List of keys from the cache
      */
     public List<String> keys() {
-        return redis.keys(prefix + "*").stream().map(Object::toString).collect(Collectors.toList());
+        Set<String> keys = new LinkedHashSet<>();
+        scan(keys::addAll);
+        return new ArrayList<>(keys);
+    }
+
+    /**
+     * Iterate incrementally over the keys of the cache with the SCAN cursor, so that the Redis server
+     * is never blocked whatever the size of the keyspace.
+     * As stated by SCAN, a key may be given more than once.
+     * - scan-count: the number of keys requested per SCAN call, and removed per UNLINK call by clear() (100 by default)
+     *
+     * @param batchConsumer called with each non empty batch of keys
+     */
+    public void scan(Consumer<List<String>> batchConsumer) {
+        String pattern = prefix.replaceAll("([*?\\[\\]\\\\])", "\\\\$1") + "*";
+        String cursor = "0";
+
+        do {
+            String current = cursor;
+            Response response = call(
+                "scan",
+                reactiveRedis.scan(Arrays.asList(current, "MATCH", pattern, "COUNT", String.valueOf(scanCount)))
+            );
+            cursor = response.get(0).toString();
+            List<String> batch = response.get(1).stream().map(Object::toString).collect(Collectors.toList());
+            if (!batch.isEmpty()) {
+                batchConsumer.accept(batch);
+            }
+        } while (!"0".equals(cursor));
+    }
+
+    /**
+     * Remove the given keys from Redis, with UNLINK when available.
+     */
+    void delete(List<String> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        if (unlinkSupported) {
+            try {
+                call("delete", reactiveRedis.unlink(keys));
+                return;
+            } catch (RuntimeException e) {
+                if (!isUnknownCommand(e)) {
+                    throw e;
+                }
+                log.info("UNLINK is not supported by the Redis server, falling back to DEL");
+                unlinkSupported = false;
+            }
+        }
+        call("delete", reactiveRedis.del(keys));
+    }
+
+    private static boolean isUnknownCommand(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause.getMessage() != null && cause.getMessage().contains("unknown command")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Notify the other nodes that entries have been removed.
+     *
+     * @param keys the removed keys, or null if the whole cache has been cleared
+     */
+    void publishInvalidation(List<String> keys) {
+        if (!isLocallyCached()) {
+            return;
+        }
+        try {
+            String message = objectMapper.writeValueAsString(new CacheInvalidation(RedisInvalidationListener.NODE_ID, keys));
+            call("publish", reactiveRedis.publish(invalidationChannel, message));
+        } catch (JsonProcessingException e) {
+            throw new CacheErrorException(e);
+        }
+    }
+
+    void onInvalidation(String message) {
+        try {
+            CacheInvalidation invalidation = objectMapper.readValue(message, CacheInvalidation.class);
+            if (RedisInvalidationListener.NODE_ID.equals(invalidation.origin)) {
+                return;
+            }
+            if (invalidation.keys == null) {
+                clearLocally();
+            } else {
+                invalidateLocally(invalidation.keys);
+            }
+        } catch (JsonProcessingException e) {
+            log.warn("Unreadable invalidation message on {}, clearing the near cache", invalidationChannel, e);
+            clearLocally();
+        }
     }
 
-    protected T deserialize(Response response) throws JsonProcessingException {
+    /**
+     * Send a command with the Vert.x client and wait for its response.
+     *
+     * @param operation the cache operation sending the command, to record its latency
+     */
+    Response send(String operation, Request request) {
+        return call(operation, request(request));
+    }
+
+    /**
+     * @return a Uni sending a command with the Vert.x client, which accepts binary arguments, on subscription
+     */
+    Uni<Response> request(Request request) {
+        return Uni
+            .createFrom()
+            .emitter(
+                emitter ->
+                    vertxRedis.send(
+                        request,
+                        ar -> {
+                            if (ar.succeeded()) {
+                                emitter.complete(ar.result());
+                            } else {
+                                emitter.fail(ar.cause());
+                            }
+                        }
+                    )
+            );
+    }
+
+    /**
+     * Send a command and wait for its response, see guard().
+     */
+    <V> V call(String operation, Uni<V> command) {
+        return guard(operation, command).await().indefinitely();
+    }
+
+    /**
+     * Send a command through the circuit breaker, recording its latency. The command fails with a CacheErrorException
+     * if Redis doesn't answer within the timeout, or right away if the circuit is open, so that a slow or unavailable
+     * Redis doesn't take the callers down: get(), getByAlias() and getAll() then fall back to the loader, see
+     * loadWithoutRedis(), and the evictions failing after a commit are retried, see evictLater().
+     * - timeout-in-millis: how long a command may take (1000 by default)
+     * - circuit-breaker.failure-threshold: the consecutive failures which open the circuit (5 by default, never opened when 0)
+     * - circuit-breaker.open-duration-in-millis: how long the circuit stays open before a command probes Redis
+     *   (5000 by default)
+     * The state of the circuit is reported by RedisCacheHealthCheck and the "cache.circuit.state" metric.
+     *
+     * @param operation the cache operation sending the command, to record its latency
+     * @param command the command, sent on subscription
+     */
+    <V> Uni<V> guard(String operation, Uni<V> command) {
+        return Uni
+            .createFrom()
+            .deferred(
+                () -> {
+                    if (!circuitBreaker.allowRequest()) {
+                        return Uni.createFrom().failure(new CacheErrorException("The circuit of the cache " + name + " is open"));
+                    }
+                    long start = System.nanoTime();
+                    return command
+                        .ifNoItem()
+                        .after(timeout)
+                        .fail()
+                        .onItem()
+                        .invoke(response -> onResponse(operation, start, null))
+                        .onFailure()
+                        .invoke(failure -> onResponse(operation, start, failure))
+                        .onFailure()
+                        .recoverWithUni(
+                            failure ->
+                                Uni
+                                    .createFrom()
+                                    .failure(failure instanceof CacheErrorException ? failure : new CacheErrorException(failure))
+                        );
+                }
+            );
+    }
+
+    /**
+     * Record the latency of a command, and whether Redis answered for the circuit breaker.
+     */
+    private void onResponse(String operation, long start, Throwable failure) {
+        metrics.redis(operation).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (failure == null || isErrorReply(failure)) {
+            if (circuitBreaker.onSuccess()) {
+                log.info("Redis answers again, closing the circuit of the cache {}", name);
+                // the values loaded meanwhile may have been updated on other nodes
+                fallbackCache.clear();
+            }
+            retryEvictions();
+        } else if (circuitBreaker.onFailure()) {
+            log.warn("Redis is failing, opening the circuit of the cache {}: {}", name, failure.getMessage());
+        }
+    }
+
+    /**
+     * @return true if the failure is an error returned by Redis, e.g. an unknown command, which shows that Redis
+     * is available
+     */
+    private static boolean isErrorReply(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            String message = cause.getMessage();
+            if (message != null && (message.startsWith("ERR ") || message.startsWith("WRONGTYPE ") || message.startsWith("NOSCRIPT "))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Decode a stored value with the codec identified by its first byte, decompressing it if needed.
+     * Values stored before the codecs were introduced are plain JSON documents.
+     */
+    protected T deserialize(Response response) {
         if (response == null) {
             return null;
         }
+        return metrics.deserialization.record(() -> decode(response.toBytes()));
+    }
 
-        return objectMapper.readValue(response.toString(), this.type);
+    private T decode(byte[] data) {
+        try {
+            CacheCodec<T> decoder = data.length > 0 ? decoders.get((byte) (data[0] & ~COMPRESSED)) : null;
+            if (decoder == null) {
+                return objectMapper.readValue(data, this.type);
+            }
+            if ((data[0] & COMPRESSED) != 0) {
+                byte[] payload = Deflate.decompress(data, 1, data.length - 1);
+                return decoder.decode(payload, 0, payload.length);
+            }
+            return decoder.decode(data, 1, data.length - 1);
+        } catch (IOException e) {
+            throw new CacheErrorException(e);
+        }
     }
 
-    protected String serialize(T value) throws JsonProcessingException {
+    /**
+     * Encode a value with the codec of the cache, prefixed by the codec identifier.
+     * The encoded value is compressed with Deflate, flagged by the high bit of the first byte, when it is larger
+     * than the threshold and compression makes it smaller:
+     * - compression.threshold-in-bytes: the encoded size from which a value is compressed (disabled when 0, the default)
+     * The compression ratio is recorded in the "cache.compression.ratio" metric to tune the threshold.
+     */
+    protected byte[] serialize(T value) {
         if (value == null) {
             return null;
         }
 
-        return objectMapper.writeValueAsString(value);
+        return metrics.serialization.record(() -> encode(value));
+    }
+
+    private byte[] encode(T value) {
+        try {
+            byte[] payload = codec.encode(value);
+            byte header = codec.id();
+            if (compressionThreshold > 0 && payload.length >= compressionThreshold) {
+                byte[] compressed = Deflate.compress(payload);
+                metrics.compressionRatio.record((double) payload.length / compressed.length);
+                if (compressed.length < payload.length) {
+                    payload = compressed;
+                    header |= COMPRESSED;
+                }
+            }
+            byte[] data = new byte[payload.length + 1];
+            data[0] = header;
+            System.arraycopy(payload, 0, data, 1, payload.length);
+            return data;
+        } catch (IOException e) {
+            throw new CacheErrorException(e);
+        }
     }
 }
@@ -0,0 +1,35 @@
+package com.mycompany.myapp.cache.redis;
+
+import com.mycompany.myapp.cache.CircuitBreaker;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.inject.Instance;
+import javax.inject.Inject;
+import org.eclipse.microprofile.health.HealthCheck;
+import org.eclipse.microprofile.health.HealthCheckResponse;
+import org.eclipse.microprofile.health.HealthCheckResponseBuilder;
+import org.eclipse.microprofile.health.Readiness;
+
+/**
+ * Reports the state of the circuit breaker of every RedisCache, e.g. "user": "OPEN".
+ *
+ * The check stays up when a circuit is open: the caches fall back to their loaders, so the application
+ * still serves requests, only slower.
+ */
+@Readiness
+@ApplicationScoped
+public class RedisCacheHealthCheck implements HealthCheck {
+    @Inject
+    Instance<RedisCache<?>> caches;
+
+    @Override
+    public HealthCheckResponse call() {
+        HealthCheckResponseBuilder response = HealthCheckResponse.named("Redis caches").up();
+        boolean degraded = false;
+        for (RedisCache<?> cache : caches) {
+            CircuitBreaker.State state = cache.getCircuitState();
+            response.withData(cache.getName(), state.name());
+            degraded |= state != CircuitBreaker.State.CLOSED;
+        }
+        return response.withData("degraded", degraded).build();
+    }
+}
@@ -0,0 +1,151 @@
+package com.mycompany.myapp.cache.redis;
+
+import com.mycompany.myapp.cache.CircuitBreaker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * The meters of a RedisCache, all tagged with the name of the cache:
+ * - cache.gets: the lookups, tagged with their result (hit or miss) and the tier which answered (near, pinned or redis)
+ * - cache.loads: the loader calls, tagged with their result (success or failure)
+ * - cache.load.duration: the time spent in the loader
+ * - cache.refreshes: the entries reloaded ahead of their expiration
+ * - cache.evictions: the keys removed by evict() and clear()
+ * - cache.redis.duration: the latency of the Redis commands, tagged with the operation
+ * - cache.codec.duration: the time spent to serialize and deserialize the values, tagged with the operation
+ * - cache.compression.ratio: the size of the encoded values divided by their compressed size
+ * - cache.fallbacks: the lookups served without Redis, because it failed or the circuit was open
+ * - cache.circuit.state: the state of the circuit breaker, 0 when closed, 1 when half open and 2 when open
+ */
+class RedisCacheMetrics {
+    static final String NEAR = "near";
+    static final String PINNED = "pinned";
+    static final String REDIS = "redis";
+
+    private final MeterRegistry registry;
+    private final String name;
+
+    final Counter nearHits;
+    final Counter pinnedHits;
+    final Counter redisHits;
+    final Counter misses;
+    final Counter loadSuccesses;
+    final Counter loadFailures;
+    final Timer loadDuration;
+    final Counter refreshes;
+    final Counter evictions;
+    final Timer serialization;
+    final Timer deserialization;
+    final DistributionSummary compressionRatio;
+    final Counter fallbacks;
+    private final Map<String, Timer> redisDurations = new ConcurrentHashMap<>();
+
+    RedisCacheMetrics(MeterRegistry registry, String name) {
+        this.registry = registry;
+        this.name = name;
+        this.nearHits = gets("hit", NEAR);
+        this.pinnedHits = gets("hit", PINNED);
+        this.redisHits = gets("hit", REDIS);
+        this.misses = gets("miss", REDIS);
+        this.loadSuccesses = loads("success");
+        this.loadFailures = loads("failure");
+        this.loadDuration =
+            Timer.builder("cache.load.duration").description("Time spent loading the missing values").tag("cache", name).register(registry);
+        this.refreshes =
+            Counter
+                .builder("cache.refreshes")
+                .description("Number of entries reloaded ahead of expiration")
+                .tag("cache", name)
+                .register(registry);
+        this.evictions = Counter.builder("cache.evictions").description("Number of keys removed").tag("cache", name).register(registry);
+        this.serialization = codec("serialize");
+        this.deserialization = codec("deserialize");
+        this.compressionRatio =
+            DistributionSummary
+                .builder("cache.compression.ratio")
+                .description("Size of the encoded values divided by their compressed size")
+                .tag("cache", name)
+                .register(registry);
+        this.fallbacks =
+            Counter
+                .builder("cache.fallbacks")
+                .description("Number of lookups served without Redis")
+                .tag("cache", name)
+                .register(registry);
+    }
+
+    /**
+     * Report the state of the circuit breaker of the cache.
+     */
+    void circuitState(CircuitBreaker circuitBreaker) {
+        Gauge
+            .builder("cache.circuit.state", circuitBreaker, breaker -> breaker.getState().ordinal())
+            .description("State of the circuit breaker: 0 closed, 1 half open, 2 open")
+            .tag("cache", name)
+            .register(registry);
+    }
+
+    private Counter gets(String result, String tier) {
+        return Counter
+            .builder("cache.gets")
+            .description("Number of lookups, by result and by the tier which answered")
+            .tags("cache", name, "result", result, "tier", tier)
+            .register(registry);
+    }
+
+    private Counter loads(String result) {
+        return Counter
+            .builder("cache.loads")
+            .description("Number of loader calls")
+            .tags("cache", name, "result", result)
+            .register(registry);
+    }
+
+    private Timer codec(String operation) {
+        return Timer
+            .builder("cache.codec.duration")
+            .description("Time spent encoding and decoding the values")
+            .tags("cache", name, "operation", operation)
+            .register(registry);
+    }
+
+    /**
+     * @param operation the cache operation sending the command, e.g. "get" or "set-all"
+     * @return the timer of the Redis commands sent for this operation
+     */
+    Timer redis(String operation) {
+        return redisDurations.computeIfAbsent(
+            operation,
+            key ->
+                Timer
+                    .builder("cache.redis.duration")
+                    .description("Latency of the Redis commands")
+                    .tags("cache", name, "operation", key)
+                    .register(registry)
+        );
+    }
+
+    /**
+     * Run a loader, recording its duration and whether it failed.
+     */
+    <V> V load(Supplier<V> loader) {
+        long start = System.nanoTime();
+        try {
+            V result = loader.get();
+            loadSuccesses.increment();
+            return result;
+        } catch (RuntimeException | Error e) {
+            loadFailures.increment();
+            throw e;
+        } finally {
+            loadDuration.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+}
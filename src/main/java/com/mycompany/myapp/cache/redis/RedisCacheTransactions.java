@@ -0,0 +1,230 @@
+package com.mycompany.myapp.cache.redis;
+
+import io.vertx.redis.client.Request;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Apply the cache updates of a transaction once it is committed, so that the caches never publish
+ * a state which may still be rolled back, and no Redis round trip is made while the database locks are held.
+ *
+ * The updates of a transaction are collected per cache: the evictions are sent in a single command after
+ * the commit, and the written objects are encoded before the commit, while the entities can still be lazily
+ * loaded, then sent in a single command after the evictions, followed by the patches. They are dropped on rollback.
+ * Outside of a transaction they are applied immediately.
+ */
+@ApplicationScoped
+public class RedisCacheTransactions {
+    private final Logger log = LoggerFactory.getLogger(RedisCacheTransactions.class);
+
+    @Inject
+    TransactionSynchronizationRegistry transactions;
+
+    /**
+     * Evict objects from the cache once the current transaction is committed: until then, the other transactions
+     * still read the previous state from the database, which the cache keeps serving.
+     *
+     * @param cache the cache to update
+     * @param identifiers the unique objects' identifiers to remove
+     */
+    public <T> void evictAfterCommit(RedisCache<T> cache, List<Object> identifiers) {
+        if (identifiers == null) {
+            throw new NullPointerException(RedisCache.NULL_KEYS_NOT_SUPPORTED_MSG);
+        }
+        CacheUpdates<T> updates = updates(cache);
+        identifiers
+            .stream()
+            .filter(Objects::nonNull)
+            .map(cache::generateKey)
+            .forEach(
+                key -> {
+                    // the last update of a key wins
+                    updates.values.remove(key);
+                    updates.aliases.remove(key);
+                    updates.patches.remove(key);
+                    updates.evictions.add(key);
+                }
+            );
+        if (!isTransactionActive()) {
+            updates.evict();
+        }
+    }
+
+    /**
+     * Write an object through the cache once the current transaction is committed.
+     *
+     * @param cache the cache to update
+     * @param identifier the unique object's identifier to store (could not be null)
+     * @param value the value to store
+     * @param alias another identifier of the object, stored as an alias (may be null)
+     */
+    public <T> void setAfterCommit(RedisCache<T> cache, Object identifier, T value, Object alias) {
+        if (identifier == null) {
+            throw new NullPointerException(RedisCache.NULL_KEYS_NOT_SUPPORTED_MSG);
+        }
+        CacheUpdates<T> updates = updates(cache);
+        String key = cache.generateKey(identifier);
+        updates.evictions.remove(key);
+        updates.patches.remove(key);
+        updates.values.put(key, value);
+        if (alias != null && !cache.generateKey(alias).equals(key)) {
+            updates.evictions.remove(cache.generateKey(alias));
+            updates.aliases.put(cache.generateKey(alias), key);
+        }
+        if (!isTransactionActive()) {
+            updates.prepare();
+            updates.apply();
+        }
+    }
+
+    /**
+     * Update some properties of a cached object once the current transaction is committed, see RedisHashCache.patch().
+     * Their values are read from the object before the commit. The object is written whole if it is also written
+     * by setAfterCommit() in the transaction, and only evicted if it is also evicted.
+     *
+     * @param cache the cache to update
+     * @param identifier the unique object's identifier to update (could not be null)
+     * @param value the updated object
+     * @param properties the names of the updated properties
+     */
+    public <T> void patchAfterCommit(RedisHashCache<T> cache, Object identifier, T value, String... properties) {
+        if (identifier == null) {
+            throw new NullPointerException(RedisCache.NULL_KEYS_NOT_SUPPORTED_MSG);
+        }
+        CacheUpdates<T> updates = updates(cache);
+        String key = cache.generateKey(identifier);
+        if (updates.values.containsKey(key)) {
+            updates.values.put(key, value);
+        } else if (!updates.evictions.contains(key)) {
+            updates.patches.computeIfAbsent(key, patchedKey -> new LinkedHashSet<>()).addAll(Arrays.asList(properties));
+            updates.patchedValues.put(key, value);
+        }
+        if (!isTransactionActive()) {
+            updates.prepare();
+            updates.apply();
+        }
+    }
+
+    private boolean isTransactionActive() {
+        return transactions.getTransactionKey() != null && transactions.getTransactionStatus() == Status.STATUS_ACTIVE;
+    }
+
+    /**
+     * @return the updates of the cache in the current transaction, or new updates if there is no transaction
+     */
+    private <T> CacheUpdates<T> updates(RedisCache<T> cache) {
+        if (!isTransactionActive()) {
+            return new CacheUpdates<>(cache);
+        }
+        CacheUpdates<T> updates = (CacheUpdates<T>) transactions.getResource(cache);
+        if (updates == null) {
+            updates = new CacheUpdates<>(cache);
+            transactions.putResource(cache, updates);
+            transactions.registerInterposedSynchronization(updates);
+        }
+        return updates;
+    }
+
+    private class CacheUpdates<T> implements Synchronization {
+        final RedisCache<T> cache;
+        final Set<String> evictions = new LinkedHashSet<>();
+        final Map<String, T> values = new LinkedHashMap<>();
+        final Map<String, String> aliases = new LinkedHashMap<>();
+        /**
+         * The patched properties, by key, and the objects they are read from.
+         */
+        final Map<String, Set<String>> patches = new LinkedHashMap<>();
+        final Map<String, T> patchedValues = new LinkedHashMap<>();
+        Request request;
+        final Map<String, Request> patchRequests = new LinkedHashMap<>();
+        boolean prepared;
+
+        CacheUpdates(RedisCache<T> cache) {
+            this.cache = cache;
+        }
+
+        void prepare() {
+            request = values.isEmpty() ? null : cache.writeRequest(values, aliases);
+            patches.forEach((key, properties) -> patchRequests.put(key, hashCache().patchRequest(key, patchedValues.get(key), properties)));
+            prepared = true;
+        }
+
+        void apply() {
+            if (request != null) {
+                cache.write(request, values, aliases);
+            }
+            patchRequests.forEach(hashCache()::applyPatch);
+        }
+
+        /**
+         * @return the cache, which is a RedisHashCache when there are patches
+         */
+        private RedisHashCache<T> hashCache() {
+            return (RedisHashCache<T>) cache;
+        }
+
+        @Override
+        public void beforeCompletion() {
+            try {
+                prepare();
+            } catch (RuntimeException e) {
+                // failing here would roll the transaction back
+                log.warn("Could not encode the updates of the cache {}, they will be evicted", cache.name, e);
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            if (status != Status.STATUS_COMMITTED) {
+                return;
+            }
+            evict();
+            if (values.isEmpty() && patches.isEmpty()) {
+                return;
+            }
+            try {
+                if (prepared) {
+                    apply();
+                    return;
+                }
+            } catch (RuntimeException e) {
+                log.warn("Could not write through the cache {}, evicting the updated entries", cache.name, e);
+            }
+            evictions.addAll(values.keySet());
+            evictions.addAll(aliases.keySet());
+            evictions.addAll(patches.keySet());
+            evict();
+        }
+
+        /**
+         * Drop the evicted entries, and the updated ones when they can't be written, so that the previous
+         * values are not served. The transaction is committed already: if Redis fails, the keys are evicted
+         * again once it answers.
+         */
+        void evict() {
+            if (evictions.isEmpty()) {
+                return;
+            }
+            try {
+                cache.evictKeys(new ArrayList<>(evictions));
+            } catch (RuntimeException e) {
+                log.warn("Could not evict {} from the cache {}, retrying once Redis answers: {}", evictions, cache.name, e.getMessage());
+                cache.evictLater(evictions);
+            }
+            evictions.clear();
+        }
+    }
+}
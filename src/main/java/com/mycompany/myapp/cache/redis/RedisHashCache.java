@@ -0,0 +1,151 @@
+package com.mycompany.myapp.cache.redis;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.mycompany.myapp.cache.CacheErrorException;
+import io.vertx.redis.client.Command;
+import io.vertx.redis.client.Request;
+import io.vertx.redis.client.Response;
+import io.vertx.redis.client.ResponseType;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * A RedisCache storing each object as a Redis hash, with one field per property holding its JSON value,
+ * so that patch() can update a few properties of a cached object without rewriting the others.
+ *
+ * The objects are read and written like with a RedisCache: the near cache, aliases, tombstones, preload and
+ * write-through work the same way. Hashes are not compressed, and the codec only writes the objects which are
+ * not JSON objects.
+ *
+ * @param <T> The object to handle in the cache
+ */
+public abstract class RedisHashCache<T> extends RedisCache<T> {
+
+    public RedisHashCache(String prefix) {
+        super(prefix);
+    }
+
+    /**
+     * Update some properties of a cached object, in a single round trip. Nothing is stored when the object
+     * is not in the cache, so that a partial object is never cached, and the loads which read the object
+     * before the patch can't store it.
+     *
+     * @param identifier the unique object's identifier to update (could not be null)
+     * @param properties the new values, by property name
+     * @return true if the cached object was updated, false if it was not in the cache
+     */
+    public boolean patch(Object identifier, Map<String, ?> properties) {
+        if (identifier == null) {
+            throw new NullPointerException(NULL_KEYS_NOT_SUPPORTED_MSG);
+        }
+        String key = generateKey(identifier);
+        return applyPatch(key, patchRequest(key, objectMapper.valueToTree(properties), null));
+    }
+
+    /**
+     * Build the command updating the given properties of a cached object with their values in the given object.
+     * The patch is skipped if a newer version of the object was written, see version().
+     */
+    Request patchRequest(String key, T value, Collection<String> properties) {
+        ObjectNode tree = objectMapper.valueToTree(value);
+        return patchRequest(key, tree.retain(properties), value);
+    }
+
+    private Request patchRequest(String key, ObjectNode properties, T value) {
+        return Request
+            .cmd(Command.EVAL)
+            .arg(RedisScripts.HASH_PATCH)
+            .arg("3")
+            .arg(key)
+            .arg(generationKey(key))
+            .arg(versionKey(key))
+            .arg(String.valueOf(generationTimeToLiveInMillis))
+            .arg(fields(properties))
+            .arg(versionArgument(value));
+    }
+
+    /**
+     * Send a command built by patchRequest(), then drop the local copies of the object.
+     *
+     * @return true if the cached object was updated
+     */
+    boolean applyPatch(String key, Request request) {
+        boolean patched = send("patch", request).toInteger() == 1;
+        invalidateLocally(Collections.singletonList(key));
+        publishInvalidation(Collections.singletonList(key));
+        return patched;
+    }
+
+    /**
+     * @return the fields of a hash and their values as a JSON array, e.g. ["name","\"bar\"","age","42"]
+     */
+    private byte[] fields(ObjectNode properties) {
+        ArrayNode fields = objectMapper.createArrayNode();
+        Iterator<Map.Entry<String, JsonNode>> iterator = properties.fields();
+        while (iterator.hasNext()) {
+            Map.Entry<String, JsonNode> property = iterator.next();
+            fields.add(property.getKey());
+            fields.add(property.getValue().toString());
+        }
+        try {
+            return objectMapper.writeValueAsBytes(fields);
+        } catch (JsonProcessingException e) {
+            throw new CacheErrorException(e);
+        }
+    }
+
+    /**
+     * Encode a value as the fields of a hash, prefixed by HASH. A value which is not a JSON object, or has no
+     * property, is encoded by the codec.
+     */
+    @Override
+    protected byte[] serialize(T value) {
+        if (value == null) {
+            return null;
+        }
+        JsonNode tree = objectMapper.valueToTree(value);
+        if (!tree.isObject() || tree.size() == 0) {
+            return super.serialize(value);
+        }
+
+        return metrics.serialization.record(
+            () -> {
+                byte[] fields = fields((ObjectNode) tree);
+                byte[] data = new byte[fields.length + 1];
+                data[0] = HASH;
+                System.arraycopy(fields, 0, data, 1, fields.length);
+                return data;
+            }
+        );
+    }
+
+    /**
+     * Decode the fields of a hash, read with HGETALL, or a value written by the codec.
+     */
+    @Override
+    protected T deserialize(Response response) {
+        if (response == null || response.type() != ResponseType.MULTI) {
+            return super.deserialize(response);
+        }
+
+        return metrics.deserialization.record(
+            () -> {
+                try {
+                    ObjectNode tree = objectMapper.createObjectNode();
+                    for (int i = 0; i + 1 < response.size(); i += 2) {
+                        tree.set(response.get(i).toString(), objectMapper.readTree(response.get(i + 1).toBytes()));
+                    }
+                    return objectMapper.treeToValue(tree, type);
+                } catch (IOException e) {
+                    throw new CacheErrorException(e);
+                }
+            }
+        );
+    }
+}
@@ -0,0 +1,219 @@
+package com.mycompany.myapp.cache.redis;
+
+/**
+ * Lua scripts run with EVAL by the caches, when several commands have to be sent in a single round trip
+ * or applied atomically.
+ */
+final class RedisScripts {
+    /**
+     * Read a value stored as a string or, by a RedisHashCache, as a hash.
+     * Return the value (false if absent), or the fields and their values of a hash.
+     */
+    private static final String FETCH =
+        "local function fetch(key)\n" +
+        "    if redis.call('TYPE', key)['ok'] == 'hash' then\n" +
+        "        return redis.call('HGETALL', key)\n" +
+        "    end\n" +
+        "    return redis.call('GET', key)\n" +
+        "end\n";
+
+    /**
+     * Read a value with fetch(), following it when it is an alias, i.e. when it starts with RedisCache.ALIAS
+     * followed by the key it points to. The key pointed to is not declared in KEYS, which is fine as long as
+     * the cache is not on a Redis Cluster.
+     * Return the value, and 1 if it was read through an alias, 0 otherwise.
+     */
+    private static final String RESOLVE =
+        FETCH +
+        "local function resolve(key)\n" +
+        "    local value = fetch(key)\n" +
+        "    if type(value) == 'string' and string.byte(value, 1) == " + RedisCache.ALIAS + " and #value > 1 then\n" +
+        "        return fetch(string.sub(value, 2)), 1\n" +
+        "    end\n" +
+        "    return value, 0\n" +
+        "end\n";
+
+    /**
+     * Store a value with an expiration (0 for none): as a hash when it starts with RedisCache.HASH, followed by
+     * the fields and their values as a JSON array, as a string otherwise.
+     */
+    private static final String STORE =
+        "local function store(key, value, ttl)\n" +
+        "    if string.byte(value, 1) == " + RedisCache.HASH + " then\n" +
+        "        redis.call('DEL', key)\n" +
+        "        redis.call('HMSET', key, unpack(cjson.decode(string.sub(value, 2))))\n" +
+        "        if ttl > 0 then\n" +
+        "            redis.call('PEXPIRE', key, ttl)\n" +
+        "        end\n" +
+        "    elseif ttl > 0 then\n" +
+        "        redis.call('SET', key, value, 'PX', ttl)\n" +
+        "    else\n" +
+        "        redis.call('SET', key, value)\n" +
+        "    end\n" +
+        "end\n";
+
+    /**
+     * Store several values, each one with its own expiration.
+     * KEYS: the keys, ARGV: for each key the value followed by the time to live in milliseconds (0 for none).
+     */
+    static final String SET_ALL =
+        STORE +
+        "for i = 1, #KEYS do\n" +
+        "    store(KEYS[i], ARGV[i * 2 - 1], tonumber(ARGV[i * 2]))\n" +
+        "end\n" +
+        "return #KEYS";
+
+    /**
+     * Read a value, following it when it is an alias, and its remaining time to live.
+     * KEYS: the key. Return the value (nil if absent), the time to live in milliseconds of the key (negative
+     * if none) and 1 if the value was read through an alias, 0 otherwise.
+     */
+    static final String GET_WITH_TIME_TO_LIVE =
+        RESOLVE +
+        "local value, aliased = resolve(KEYS[1])\n" +
+        "return { value, redis.call('PTTL', KEYS[1]), aliased }";
+
+    /**
+     * Read a value, following it when it is an alias.
+     * KEYS: the key. Return the value (nil if absent) and 1 if it was read through an alias, 0 otherwise.
+     */
+    static final String GET = RESOLVE + "local value, aliased = resolve(KEYS[1])\n" + "return { value, aliased }";
+
+    /**
+     * Read several values, following the aliases, in a single round trip.
+     * KEYS: the keys. Return for each key, in order, the value (nil if absent) and 1 if it was read through
+     * an alias, 0 otherwise.
+     */
+    static final String GET_ALL =
+        RESOLVE +
+        "local values = {}\n" +
+        "for i = 1, #KEYS do\n" +
+        "    values[i * 2 - 1], values[i * 2] = resolve(KEYS[i])\n" +
+        "end\n" +
+        "return values";
+
+    /**
+     * Store several values, each one with its own expiration, only if a generation counter still has the expected value.
+     * KEYS: the counter followed by the keys, ARGV: the expected generation ("0" for a missing counter) followed, for
+     * each key, by the value and the time to live in milliseconds (0 for none).
+     * Return 1 if the values are stored, 0 otherwise.
+     */
+    static final String SET_ALL_IF_GENERATION =
+        STORE +
+        "if (redis.call('GET', KEYS[1]) or '0') ~= ARGV[1] then\n" +
+        "    return 0\n" +
+        "end\n" +
+        "for i = 2, #KEYS do\n" +
+        "    store(KEYS[i], ARGV[i * 2 - 2], tonumber(ARGV[i * 2 - 1]))\n" +
+        "end\n" +
+        "return 1";
+
+    /**
+     * Remove keys and increment their generation counter, so that the loads running for them can't store their value.
+     * KEYS: the keys followed by their counters, ARGV: the time to live of the counters in milliseconds.
+     */
+    static final String EVICT =
+        "local n = #KEYS / 2\n" +
+        "for i = 1, n do\n" +
+        "    redis.call('DEL', KEYS[i])\n" +
+        "    redis.call('INCR', KEYS[n + i])\n" +
+        "    redis.call('PEXPIRE', KEYS[n + i], ARGV[1])\n" +
+        "end\n" +
+        "return n";
+
+    /**
+     * Release a lock only if it is still owned by the caller.
+     * KEYS: the lock, ARGV: the token stored when the lock was acquired.
+     */
+    static final String RELEASE_LOCK =
+        "if redis.call('GET', KEYS[1]) == ARGV[1] then\n" +
+        "    return redis.call('DEL', KEYS[1])\n" +
+        "end\n" +
+        "return 0";
+
+    /**
+     * Store several values, each one with its own expiration, and increment the generation counter of their keys.
+     * A versioned value is skipped when a newer version was written, so that writes landing out of order never
+     * replace a value with an older one, and its version is kept otherwise.
+     * KEYS: the keys followed by their counters and their version keys, ARGV: the time to live of the counters and
+     * versions in milliseconds, then for each key the value, the time to live in milliseconds (0 for none) and the
+     * version ("" for none).
+     * Return the number of values skipped.
+     */
+    static final String WRITE =
+        STORE +
+        "local n = #KEYS / 3\n" +
+        "local skipped = 0\n" +
+        "for i = 1, n do\n" +
+        "    local version = ARGV[i * 3 + 1]\n" +
+        "    local written = version ~= '' and tonumber(redis.call('GET', KEYS[2 * n + i]))\n" +
+        "    if written and written > tonumber(version) then\n" +
+        "        skipped = skipped + 1\n" +
+        "    else\n" +
+        "        store(KEYS[i], ARGV[i * 3 - 1], tonumber(ARGV[i * 3]))\n" +
+        "        if version ~= '' then\n" +
+        "            redis.call('SET', KEYS[2 * n + i], version, 'PX', ARGV[1])\n" +
+        "        end\n" +
+        "    end\n" +
+        "    redis.call('INCR', KEYS[n + i])\n" +
+        "    redis.call('PEXPIRE', KEYS[n + i], ARGV[1])\n" +
+        "end\n" +
+        "return skipped";
+
+    /**
+     * Store several values, each one with its own expiration, skipping the keys which already have a value or
+     * which have been evicted or written recently (their generation counter still exists).
+     * An alias is stored only if the value it points to is stored by the same call.
+     * KEYS: the keys followed by their counters, ARGV: for each key the value, the time to live in milliseconds
+     * (0 for none) and, for an alias, the position of the key it points to in KEYS (0 for a value).
+     * Return the number of keys stored.
+     */
+    static final String SET_ALL_IF_ABSENT =
+        STORE +
+        "local n = #KEYS / 2\n" +
+        "local stored = {}\n" +
+        "local count = 0\n" +
+        "for i = 1, n do\n" +
+        "    local target = tonumber(ARGV[i * 3])\n" +
+        "    if (target == 0 or stored[target]) and redis.call('EXISTS', KEYS[i]) == 0 and redis.call('EXISTS', KEYS[n + i]) == 0 then\n" +
+        "        store(KEYS[i], ARGV[i * 3 - 2], tonumber(ARGV[i * 3 - 1]))\n" +
+        "        stored[i] = true\n" +
+        "        count = count + 1\n" +
+        "    end\n" +
+        "end\n" +
+        "return count";
+
+    /**
+     * Update some fields of a value stored as a hash, and increment the generation counter of its key, so that
+     * the loads which read the object before the update can't store it. A value stored as a string is removed,
+     * and nothing is stored for an absent key, so that a partial object is never cached.
+     * A versioned patch is skipped when a newer version was written, like with WRITE.
+     * KEYS: the key, its counter and its version key, ARGV: the time to live of the counter and version in
+     * milliseconds, the fields and their values as a JSON array, then the version ("" for none).
+     * Return 1 if the hash is updated, 0 otherwise.
+     */
+    static final String HASH_PATCH =
+        "redis.call('INCR', KEYS[2])\n" +
+        "redis.call('PEXPIRE', KEYS[2], ARGV[1])\n" +
+        "if ARGV[3] ~= '' then\n" +
+        "    local written = tonumber(redis.call('GET', KEYS[3]))\n" +
+        "    if written and written > tonumber(ARGV[3]) then\n" +
+        "        return 0\n" +
+        "    end\n" +
+        "    redis.call('SET', KEYS[3], ARGV[3], 'PX', ARGV[1])\n" +
+        "end\n" +
+        "local kind = redis.call('TYPE', KEYS[1])['ok']\n" +
+        "if kind == 'hash' then\n" +
+        "    local fields = cjson.decode(ARGV[2])\n" +
+        "    if #fields > 0 then\n" +
+        "        redis.call('HMSET', KEYS[1], unpack(fields))\n" +
+        "    end\n" +
+        "    return 1\n" +
+        "end\n" +
+        "if kind ~= 'none' then\n" +
+        "    redis.call('DEL', KEYS[1])\n" +
+        "end\n" +
+        "return 0";
+
+    private RedisScripts() {}
+}
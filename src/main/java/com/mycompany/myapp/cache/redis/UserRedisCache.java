@@ -1,20 +1,43 @@
 package com.mycompany.myapp.cache.redis;
 
 import com.mycompany.myapp.domain.User;
+import io.vertx.redis.client.Request;
 
 import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 
 /**
  * This cache manager is used to manage users in the Redis cache.
  *
- * An entry per user and per identifier.
+ * An entry per user, stored under its login, and an alias per email pointing to it.
  *
- * e.g. USER:admin or USER:admin@localhost (or anything you want)
+ * e.g. USER:admin, and USER:admin@localhost pointing to USER:admin
+ *
+ * Users are read on every authenticated request, so a near cache is enabled for them
+ * through the "jhipster.cache.user." properties.
+ *
+ * Users are stored as hashes, so that an update of a few properties, e.g. an activation, is patched in place.
+ * They are versioned by their JPA version, so that the write-through never replaces a user with an older state.
  */
 @Singleton
-public class UserRedisCache extends RedisCache<User> {
+public class UserRedisCache extends RedisHashCache<User> {
 
     public UserRedisCache() {
         super("USER:");
     }
+
+    @Override
+    protected Long version(User user) {
+        return user.version;
+    }
+
+    @Override
+    Request patchRequest(String key, User user, Collection<String> properties) {
+        // the cached user keeps the version it was patched with
+        List<String> patched = new ArrayList<>(properties);
+        patched.add("version");
+        return super.patchRequest(key, user, patched);
+    }
 }
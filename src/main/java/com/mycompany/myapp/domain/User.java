@@ -3,6 +3,7 @@ package com.mycompany.myapp.domain;
 import com.mycompany.myapp.config.Constants;
 import io.quarkus.hibernate.orm.panache.PanacheEntityBase;
 import io.quarkus.panache.common.Page;
+import io.quarkus.panache.common.Sort;
 import java.io.Serializable;
 import java.time.Instant;
 import java.util.HashSet;
@@ -114,6 +115,12 @@ public class User extends PanacheEntityBase implements Serializable {
     @JsonbTransient
     public Instant lastModifiedDate = Instant.now();
 
+    // incremented by each update, so that the user cache never replaces a user with an older state
+    @Version
+    @Column(nullable = false)
+    @JsonbTransient
+    public Long version;
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -199,4 +206,11 @@ public class User extends PanacheEntityBase implements Serializable {
     public static List<User> findAllByLoginNot(Page page, String login) {
         return find("login != ?1", login).page(page).list();
     }
+
+    public static List<User> findAllWithAuthoritiesByOrderByLastModifiedDateDesc(Page page) {
+        List<User> users = findAll(Sort.descending("lastModifiedDate").and("id")).page(page).list();
+        // the authorities are fetched by batches, a join would prevent the database from paging
+        users.forEach(user -> user.authorities.size());
+        return users;
+    }
 }
@@ -1,10 +1,22 @@
 package com.mycompany.myapp.security;
 
+import io.quarkus.runtime.StartupEvent;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.security.spec.InvalidKeySpecException;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import javax.annotation.PostConstruct;
 import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.wildfly.security.credential.PasswordCredential;
 import org.wildfly.security.evidence.PasswordGuessEvidence;
 import org.wildfly.security.password.Password;
@@ -15,14 +27,53 @@ import org.wildfly.security.password.spec.EncryptablePasswordSpec;
 import org.wildfly.security.password.spec.IteratedSaltedPasswordAlgorithmSpec;
 import org.wildfly.security.password.util.ModularCrypt;
 
+/**
+ * Hashes and verifies the passwords with BCrypt.
+ *
+ * The work runs on the PasswordHashingExecutor, so that it doesn't hold the threads serving the requests:
+ * the async methods must be preferred, the blocking ones wait for the executor. Both fail with a
+ * PasswordHashingRejectedException when the executor is saturated.
+ * An instance built by hand, outside of the container, runs the work on the calling thread.
+ *
+ * The cost of the container's instance is configured, or calibrated at startup so that a verification takes about
+ * a target time on this hardware:
+ * - jhipster.security.password-hashing.cost: the cost, calibrated when 0 (the default)
+ * - jhipster.security.password-hashing.target-verify-time-in-millis: the time targeted by the calibration (50 by default)
+ * - jhipster.security.password-hashing.min-cost: the lowest cost chosen by the calibration (10 by default)
+ * - jhipster.security.password-hashing.max-cost: the highest cost chosen by the calibration (16 by default)
+ * The hashes stored with a lower cost can be detected with needsRehash, and replaced on the next login. A hash
+ * with a higher cost is kept: the nodes may calibrate different costs, and must not replace each other's hashes
+ * on every login. Configure the cost to use the same one on every node.
+ */
 @ApplicationScoped
 public class BCryptPasswordHasher {
     private static final WildFlyElytronPasswordProvider provider = new WildFlyElytronPasswordProvider();
     public static final int DEFAULT_ITERATION_COUNT = 10;
 
-    private final int iterationCount;
+    // the factories are stateless, and a SecureRandom is seeded once per hashing thread rather than once per hash
+    private static final PasswordFactory passwordFactory = createPasswordFactory();
+    private static final ThreadLocal<SecureRandom> threadRandom = ThreadLocal.withInitial(SecureRandom::new);
+
+    private final Logger log = LoggerFactory.getLogger(BCryptPasswordHasher.class);
+
+    private int iterationCount;
     private final SecureRandom random;
 
+    @ConfigProperty(name = "jhipster.security.password-hashing.cost", defaultValue = "0")
+    int cost;
+
+    @ConfigProperty(name = "jhipster.security.password-hashing.target-verify-time-in-millis", defaultValue = "50")
+    long targetVerifyTimeInMillis;
+
+    @ConfigProperty(name = "jhipster.security.password-hashing.min-cost", defaultValue = "10")
+    int minCost;
+
+    @ConfigProperty(name = "jhipster.security.password-hashing.max-cost", defaultValue = "16")
+    int maxCost;
+
+    @Inject
+    PasswordHashingExecutor executor;
+
     public BCryptPasswordHasher() {
         this(DEFAULT_ITERATION_COUNT);
     }
@@ -36,9 +87,110 @@ public class BCryptPasswordHasher {
         this.random = random;
     }
 
+    @PostConstruct
+    void init() {
+        this.iterationCount = cost > 0 ? cost : calibrate();
+    }
+
+    void onStart(@Observes StartupEvent event) {
+        // the bean is created, and calibrated, before the first login
+        log.info("Hashing the passwords with a BCrypt cost of {}", iterationCount);
+    }
+
+    private int calibrate() {
+        long best = Long.MAX_VALUE;
+        // the first run warms up
+        for (int run = 0; run < 4; run++) {
+            long start = System.nanoTime();
+            doHash("calibration", minCost);
+            if (run > 0) {
+                best = Math.min(best, System.nanoTime() - start);
+            }
+        }
+        int calibrated = costFor(best, minCost, TimeUnit.MILLISECONDS.toNanos(targetVerifyTimeInMillis), minCost, maxCost);
+        log.debug("BCrypt cost {} takes {} ms, calibrated cost: {}", minCost, TimeUnit.NANOSECONDS.toMillis(best), calibrated);
+        return calibrated;
+    }
+
+    /**
+     * @return the highest cost which is expected to take at most targetNanos, knowing that measuredCost took measuredNanos
+     * and that each increment doubles the time, within minCost and maxCost
+     */
+    static int costFor(long measuredNanos, int measuredCost, long targetNanos, int minCost, int maxCost) {
+        int cost = measuredCost;
+        long nanos = measuredNanos;
+        while (cost < maxCost && nanos * 2 <= targetNanos) {
+            nanos *= 2;
+            cost++;
+        }
+        return Math.max(minCost, Math.min(cost, maxCost));
+    }
+
+    public int getIterationCount() {
+        return iterationCount;
+    }
+
+    /**
+     * @return true if the hashed password was hashed with a lower cost than the current one, and should be hashed again
+     */
+    public boolean needsRehash(String hashedPassword) {
+        Password password = decode(hashedPassword);
+        return !(password instanceof BCryptPassword) || ((BCryptPassword) password).getIterationCount() < iterationCount;
+    }
+
     public boolean checkPassword(String plaintextPassword, String hashedPassword) {
+        return join(checkPasswordAsync(plaintextPassword, hashedPassword));
+    }
+
+    public CompletionStage<Boolean> checkPasswordAsync(String plaintextPassword, String hashedPassword) {
         Objects.requireNonNull(plaintextPassword, "plaintext password is required");
         Objects.requireNonNull(hashedPassword, "hashed password is required");
+        return submit("check", () -> verify(plaintextPassword, hashedPassword));
+    }
+
+    public String hash(String password) {
+        return join(hashAsync(password));
+    }
+
+    public CompletionStage<String> hashAsync(String password) {
+        Objects.requireNonNull(password, "password is required");
+
+        if (iterationCount <= 0) throw new IllegalArgumentException("Iteration count must be greater than zero");
+
+        int iterations = iterationCount;
+        return submit("hash", () -> doHash(password, iterations));
+    }
+
+    /**
+     * @return true if the hashes and verifications are waiting for a thread of the executor
+     */
+    public boolean isBusy() {
+        return executor != null && executor.isBusy();
+    }
+
+    private <V> CompletionStage<V> submit(String operation, Supplier<V> task) {
+        if (executor == null) {
+            try {
+                return CompletableFuture.completedFuture(task.get());
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        return executor.submit(operation, task);
+    }
+
+    private static <V> V join(CompletionStage<V> stage) {
+        try {
+            return stage.toCompletableFuture().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private boolean verify(String plaintextPassword, String hashedPassword) {
         PasswordGuessEvidence evidence = new PasswordGuessEvidence(plaintextPassword.toCharArray());
         PasswordCredential credential = new PasswordCredential(decode(hashedPassword));
         return credential.verify(evidence);
@@ -52,27 +204,15 @@ public class BCryptPasswordHasher {
         }
     }
 
-    public String hash(String password) {
-        Objects.requireNonNull(password, "password is required");
-
-        if (iterationCount <= 0) throw new IllegalArgumentException("Iteration count must be greater than zero");
-
+    private String doHash(String password, int cost) {
         byte[] salt = new byte[BCryptPassword.BCRYPT_SALT_SIZE];
         if (random != null) {
             random.nextBytes(salt);
         } else {
-            new SecureRandom().nextBytes(salt);
-        }
-
-        PasswordFactory passwordFactory;
-        try {
-            passwordFactory = PasswordFactory.getInstance(BCryptPassword.ALGORITHM_BCRYPT, provider);
-        } catch (NoSuchAlgorithmException e) {
-            // can't really happen
-            throw new RuntimeException(e);
+            threadRandom.get().nextBytes(salt);
         }
 
-        IteratedSaltedPasswordAlgorithmSpec iteratedAlgorithmSpec = new IteratedSaltedPasswordAlgorithmSpec(iterationCount, salt);
+        IteratedSaltedPasswordAlgorithmSpec iteratedAlgorithmSpec = new IteratedSaltedPasswordAlgorithmSpec(cost, salt);
         EncryptablePasswordSpec encryptableSpec = new EncryptablePasswordSpec(password.toCharArray(), iteratedAlgorithmSpec);
 
         try {
@@ -83,4 +223,13 @@ public class BCryptPasswordHasher {
             throw new RuntimeException(e);
         }
     }
+
+    private static PasswordFactory createPasswordFactory() {
+        try {
+            return PasswordFactory.getInstance(BCryptPassword.ALGORITHM_BCRYPT, provider);
+        } catch (NoSuchAlgorithmException e) {
+            // can't really happen
+            throw new RuntimeException(e);
+        }
+    }
 }
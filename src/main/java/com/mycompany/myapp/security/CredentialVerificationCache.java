@@ -0,0 +1,126 @@
+package com.mycompany.myapp.security;
+
+import com.mycompany.myapp.cache.NearCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.List;
+import javax.annotation.PostConstruct;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+/**
+ * Remembers the credentials recently verified, so that a repeated login skips BCrypt.
+ *
+ * Only an HMAC of the login, the password and the stored hash is kept, under a key generated at startup and
+ * never stored: the entries can't be checked against a password outside of this instance. As the stored hash is
+ * part of the HMAC, an entry no longer matches once the password changed, even on another node; the entries are
+ * still invalidated as soon as the password is changed, reset, or the user deleted.
+ *
+ * It is disabled by default:
+ * - jhipster.security.authentication.verification-cache.max-entries: the number of logins remembered (0, disabled, by default)
+ * - jhipster.security.authentication.verification-cache.time-to-live-in-millis: how long they are remembered (30000 by default)
+ *
+ * Meters: authentication.verification.cache, tagged with the result (hit or miss).
+ */
+@ApplicationScoped
+public class CredentialVerificationCache {
+    private static final String ALGORITHM = "HmacSHA256";
+
+    @ConfigProperty(name = "jhipster.security.authentication.verification-cache.max-entries", defaultValue = "0")
+    int maxEntries;
+
+    @ConfigProperty(name = "jhipster.security.authentication.verification-cache.time-to-live-in-millis", defaultValue = "30000")
+    long timeToLiveInMillis;
+
+    @Inject
+    MeterRegistry registry;
+
+    private NearCache<byte[]> verifications;
+    private SecretKeySpec key;
+    private ThreadLocal<Mac> mac;
+    private Counter hits;
+    private Counter misses;
+
+    @PostConstruct
+    void init() {
+        this.verifications = new NearCache<>(maxEntries, timeToLiveInMillis);
+        byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+        this.key = new SecretKeySpec(secret, ALGORITHM);
+        this.mac = ThreadLocal.withInitial(this::createMac);
+        this.hits = counter("hit");
+        this.misses = counter("miss");
+    }
+
+    public boolean isEnabled() {
+        return verifications.isEnabled();
+    }
+
+    /**
+     * @return true if these credentials were verified recently
+     */
+    public boolean isVerified(String login, String password, String hashedPassword) {
+        if (!isEnabled()) {
+            return false;
+        }
+        byte[] verified = verifications.get(login);
+        boolean hit = verified != null && MessageDigest.isEqual(verified, digest(login, password, hashedPassword));
+        (hit ? hits : misses).increment();
+        return hit;
+    }
+
+    /**
+     * Remember credentials which were just verified.
+     */
+    public void put(String login, String password, String hashedPassword) {
+        if (isEnabled()) {
+            verifications.put(login, digest(login, password, hashedPassword));
+        }
+    }
+
+    public void invalidate(String login) {
+        verifications.invalidate(List.of(login));
+    }
+
+    private byte[] digest(String login, String password, String hashedPassword) {
+        Mac hmac = mac.get();
+        update(hmac, login);
+        update(hmac, password);
+        update(hmac, hashedPassword);
+        return hmac.doFinal();
+    }
+
+    private static void update(Mac hmac, String value) {
+        // each value is prefixed with its length, so that ("ab", "c") and ("a", "bc") don't collide
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        hmac.update(ByteBuffer.allocate(Integer.BYTES).putInt(bytes.length).array());
+        hmac.update(bytes);
+    }
+
+    private Mac createMac() {
+        try {
+            Mac hmac = Mac.getInstance(ALGORITHM);
+            hmac.init(key);
+            return hmac;
+        } catch (GeneralSecurityException e) {
+            // can't really happen
+            throw new RuntimeException(e);
+        }
+    }
+
+    private Counter counter(String result) {
+        return Counter
+            .builder("authentication.verification.cache")
+            .description("Number of logins checked against the recently verified credentials")
+            .tag("result", result)
+            .register(registry);
+    }
+}
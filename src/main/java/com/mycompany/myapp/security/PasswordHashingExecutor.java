@@ -0,0 +1,145 @@
+package com.mycompany.myapp.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+/**
+ * Runs the password hashes and verifications on a dedicated pool of threads, so that a burst of logins
+ * can't take all the worker threads serving the other requests.
+ *
+ * The pool has a fixed number of threads and a bounded queue: when the queue is full, the tasks are rejected
+ * right away with a PasswordHashingRejectedException, answered by a 503 with a Retry-After header.
+ * - jhipster.security.password-hashing.threads: the number of threads (the number of processors when 0, the default)
+ * - jhipster.security.password-hashing.queue-capacity: the number of tasks waiting for a thread (100 by default)
+ * - jhipster.security.password-hashing.retry-after-in-seconds: the delay suggested to the rejected clients (1 by default)
+ *
+ * Meters:
+ * - password.hashing.queue.size: the number of tasks waiting for a thread
+ * - password.hashing.active: the number of tasks running
+ * - password.hashing.wait: the time spent by the tasks in the queue
+ * - password.hashing.duration: the time spent hashing, tagged with the operation (hash or check)
+ * - password.hashing.rejections: the number of tasks rejected
+ */
+@ApplicationScoped
+public class PasswordHashingExecutor {
+    @ConfigProperty(name = "jhipster.security.password-hashing.threads", defaultValue = "0")
+    int threads;
+
+    @ConfigProperty(name = "jhipster.security.password-hashing.queue-capacity", defaultValue = "100")
+    int queueCapacity;
+
+    @ConfigProperty(name = "jhipster.security.password-hashing.retry-after-in-seconds", defaultValue = "1")
+    int retryAfterInSeconds;
+
+    @Inject
+    MeterRegistry registry;
+
+    ThreadPoolExecutor executor;
+    private Timer wait;
+    private Counter rejections;
+    private final Map<String, Timer> durations = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void init() {
+        int size = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger count = new AtomicInteger();
+        this.executor =
+            new ThreadPoolExecutor(
+                size,
+                size,
+                0,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            );
+
+        Gauge
+            .builder("password.hashing.queue.size", executor, pool -> pool.getQueue().size())
+            .description("Number of password hashing tasks waiting for a thread")
+            .register(registry);
+        Gauge
+            .builder("password.hashing.active", executor, ThreadPoolExecutor::getActiveCount)
+            .description("Number of password hashing tasks running")
+            .register(registry);
+        this.wait =
+            Timer.builder("password.hashing.wait").description("Time spent waiting for a password hashing thread").register(registry);
+        this.rejections =
+            Counter.builder("password.hashing.rejections").description("Number of password hashing tasks rejected").register(registry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Run a task on the pool.
+     *
+     * @param operation the name of the operation, to record its duration, e.g. "hash"
+     * @param task the task to run
+     * @return the result of the task, failed with a PasswordHashingRejectedException if the pool is saturated
+     */
+    public <V> CompletionStage<V> submit(String operation, Supplier<V> task) {
+        CompletableFuture<V> result = new CompletableFuture<>();
+        long queuedAt = System.nanoTime();
+        try {
+            executor.execute(
+                () -> {
+                    long start = System.nanoTime();
+                    wait.record(start - queuedAt, TimeUnit.NANOSECONDS);
+                    try {
+                        result.complete(task.get());
+                    } catch (RuntimeException | Error e) {
+                        result.completeExceptionally(e);
+                    } finally {
+                        duration(operation).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    }
+                }
+            );
+        } catch (RejectedExecutionException e) {
+            rejections.increment();
+            result.completeExceptionally(new PasswordHashingRejectedException(retryAfterInSeconds));
+        }
+        return result;
+    }
+
+    /**
+     * @return true if tasks are waiting for a thread, so that the optional work can be skipped
+     */
+    public boolean isBusy() {
+        return !executor.getQueue().isEmpty();
+    }
+
+    private Timer duration(String operation) {
+        return durations.computeIfAbsent(
+            operation,
+            key ->
+                Timer
+                    .builder("password.hashing.duration")
+                    .description("Time spent hashing or verifying passwords")
+                    .tag("operation", key)
+                    .register(registry)
+        );
+    }
+}
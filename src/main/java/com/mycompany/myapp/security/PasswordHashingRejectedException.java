@@ -0,0 +1,20 @@
+package com.mycompany.myapp.security;
+
+/**
+ * Thrown when the password hashing executor is saturated, so that the request is rejected right away
+ * rather than queued behind the others.
+ */
+public class PasswordHashingRejectedException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final int retryAfterInSeconds;
+
+    public PasswordHashingRejectedException(int retryAfterInSeconds) {
+        super("Too many password hashing requests");
+        this.retryAfterInSeconds = retryAfterInSeconds;
+    }
+
+    public int getRetryAfterInSeconds() {
+        return retryAfterInSeconds;
+    }
+}
@@ -2,18 +2,23 @@ package com.mycompany.myapp.service;
 
 import com.mycompany.myapp.domain.User;
 import com.mycompany.myapp.security.BCryptPasswordHasher;
+import com.mycompany.myapp.security.CredentialVerificationCache;
 import com.mycompany.myapp.security.UserNotActivatedException;
 import com.mycompany.myapp.security.UsernameNotFoundException;
 import com.mycompany.myapp.cache.redis.UserRedisCache;
 import io.quarkus.security.AuthenticationFailedException;
 import io.quarkus.security.runtime.QuarkusPrincipal;
 import io.quarkus.security.runtime.QuarkusSecurityIdentity;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
+import javax.transaction.Transactional;
 import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.stream.Collectors;
 
 @ApplicationScoped
@@ -33,31 +38,93 @@ public class AuthenticationService {
     @Inject
     UserRedisCache userRedisCache;
 
-    public QuarkusSecurityIdentity authenticate(String login, String password) {
+    @Inject
+    UserService userService;
+
+    @Inject
+    CredentialVerificationCache verificationCache;
+
+    /**
+     * Authenticate a user: the user is loaded on the calling thread, the password is checked on the hashing executor.
+     *
+     * @return the identity of the user, failed with an AuthenticationFailedException if the password doesn't match
+     * @throws UsernameNotFoundException if the user doesn't exist
+     * @throws UserNotActivatedException if the user isn't activated
+     */
+    public CompletionStage<QuarkusSecurityIdentity> authenticate(String login, String password) {
         User user = loadByUsername(login);
         if (!user.activated) {
             throw new UserNotActivatedException("User " + login + " was not activated");
         }
-        if (passwordHasher.checkPassword(password, user.password)) {
-            return createQuarkusSecurityIdentity(user);
+        if (verificationCache.isVerified(user.login, password, user.password)) {
+            log.debug("Authenticated {} with recently verified credentials", user.login);
+            return CompletableFuture.completedFuture(createQuarkusSecurityIdentity(user));
         }
-        log.debug("Authentication failed: password does not match stored value");
-        throw new AuthenticationFailedException("Authentication failed: password does not match stored value");
+        return passwordHasher
+            .checkPasswordAsync(password, user.password)
+            .thenApply(
+                matches -> {
+                    if (matches) {
+                        verificationCache.put(user.login, password, user.password);
+                        // the rehash can wait for the next login when other logins wait for the hashing threads
+                        if (passwordHasher.needsRehash(user.password) && !passwordHasher.isBusy()) {
+                            rehash(user, password);
+                        }
+                        return createQuarkusSecurityIdentity(user);
+                    }
+                    log.debug("Authentication failed: password does not match stored value");
+                    throw new AuthenticationFailedException("Authentication failed: password does not match stored value");
+                }
+            );
+    }
+
+    /**
+     * Hash the password again with the current cost, in background: the login doesn't wait for it, and a failure
+     * only leaves the former hash, to be replaced on the next login.
+     * The new hash is stored on a worker thread, so that the database and Redis calls don't hold a hashing thread.
+     */
+    private void rehash(User user, String password) {
+        String currentEncryptedPassword = user.password;
+        passwordHasher
+            .hashAsync(password)
+            .thenAcceptAsync(
+                newEncryptedPassword -> userService.upgradePasswordHash(user.login, currentEncryptedPassword, newEncryptedPassword),
+                Infrastructure.getDefaultWorkerPool()
+            )
+            .exceptionally(
+                throwable -> {
+                    log.debug("Could not rehash the password of {}: {}", user.login, throwable.getMessage());
+                    return null;
+                }
+            );
     }
 
     private User loadByUsername(String login) {
         log.debug("Authenticating {}", login);
 
+        String lowercaseLogin = login.toLowerCase(Locale.ENGLISH);
         if (login.matches(emailValidator)) {
-            return userRedisCache.get(login, () -> User.findOneWithAuthoritiesByEmailIgnoreCase(login))
+            // the user is cached under its login, the email only points to it
+            return userRedisCache
+                .getByAlias(lowercaseLogin, user -> user.login, () -> this.findOneWithAuthoritiesByEmail(lowercaseLogin))
                 .orElseThrow(() -> new UsernameNotFoundException("User with email " + login + " was not found in the database"));
         }
-        String lowercaseLogin = login.toLowerCase(Locale.ENGLISH);
 
-        return userRedisCache.get(lowercaseLogin, () -> User.findOneWithAuthoritiesByLogin(lowercaseLogin))
+        return userRedisCache.get(lowercaseLogin, () -> this.findOneWithAuthoritiesByLogin(lowercaseLogin))
             .orElseThrow(() -> new UsernameNotFoundException("User " + lowercaseLogin + " was not found in the database"));
     }
 
+    // the loaders run in their own transaction, as the entries may be refreshed in background
+    @Transactional
+    User findOneWithAuthoritiesByLogin(String login) {
+        return User.findOneWithAuthoritiesByLogin(login);
+    }
+
+    @Transactional
+    User findOneWithAuthoritiesByEmail(String email) {
+        return User.findOneWithAuthoritiesByEmailIgnoreCase(email);
+    }
+
     private QuarkusSecurityIdentity createQuarkusSecurityIdentity(User user) {
         QuarkusSecurityIdentity.Builder builder = QuarkusSecurityIdentity.builder();
         builder.setPrincipal(new QuarkusPrincipal(user.login));
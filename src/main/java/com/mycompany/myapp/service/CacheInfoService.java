@@ -0,0 +1,45 @@
+package com.mycompany.myapp.service;
+
+import com.mycompany.myapp.cache.redis.RedisCache;
+import com.mycompany.myapp.service.dto.CacheInfoDTO;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.inject.Instance;
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+* Provides information for management/caches resource
+*/
+@ApplicationScoped
+public class CacheInfoService {
+
+    private final Instance<RedisCache<?>> caches;
+
+    @Inject
+    public CacheInfoService(Instance<RedisCache<?>> caches) {
+        this.caches = caches;
+    }
+
+    public List<CacheInfoDTO> getCacheInfos() {
+        List<CacheInfoDTO> infos = new ArrayList<>();
+        for (RedisCache<?> cache : caches) {
+            var info = new CacheInfoDTO();
+            info.name = cache.getName();
+            cache
+                .getHotKeys()
+                .forEach(
+                    entry -> {
+                        var hotKey = new CacheInfoDTO.HotKey();
+                        hotKey.key = entry.getKey();
+                        hotKey.reads = entry.getValue();
+                        hotKey.pinned = cache.isPinned(entry.getKey());
+                        info.hotKeys.add(hotKey);
+                    }
+                );
+            infos.add(info);
+        }
+        return infos;
+    }
+}
@@ -0,0 +1,398 @@
+package com.mycompany.myapp.service;
+
+import com.mycompany.myapp.cache.CircuitBreaker;
+import com.mycompany.myapp.service.dto.LoginLockoutDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.redis.client.reactive.ReactiveRedisClient;
+import io.smallrye.mutiny.Uni;
+import io.vertx.redis.client.Response;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Counts the failed logins per login and per client IP in Redis, so that the nodes share them, and locks the logins
+ * and IPs which failed too often before their credentials are even checked.
+ *
+ * The failures are counted in a sliding window, approximated by two fixed windows: the count of the previous window
+ * is weighted by the part of it still in the sliding window. The counters are incremented and expired atomically by
+ * Lua scripts. The locked logins and IPs are also kept in a sorted set, scored by the time they are unlocked at the
+ * latest, so that they can be listed and cleared.
+ * - jhipster.security.login-throttling.enabled: true by default
+ * - jhipster.security.login-throttling.window-in-seconds: the length of the sliding window (300 by default)
+ * - jhipster.security.login-throttling.login.max-failures: the failures of a login locking it (5 by default)
+ * - jhipster.security.login-throttling.ip.max-failures: the failures from an IP locking it (disabled when 0, the default)
+ * - jhipster.security.login-throttling.timeout-in-millis: how long to wait for Redis (200 by default)
+ *
+ * The IP is the address of the client connected to this node: behind a load balancer or a reverse proxy, every client
+ * would share the IP of the proxy and be locked together. Only enable the limit per IP once
+ * quarkus.http.proxy-address-forwarding is enabled, and only if the proxy is trusted to overwrite the forwarded headers,
+ * as a client could otherwise pick any IP for each attempt.
+ *
+ * The logins are let through when Redis fails or is too slow: an outage of Redis must not lock everybody out.
+ * A circuit breaker stops waiting for Redis after 5 consecutive failures, for 5 seconds.
+ *
+ * Meters:
+ * - login.throttling.rejections: the logins rejected, tagged with the locked subject (login or ip)
+ * - login.throttling.lockouts: the logins and IPs locked
+ * - login.throttling.errors: the logins let through as Redis failed
+ */
+@ApplicationScoped
+public class LoginThrottlingService {
+    private final Logger log = LoggerFactory.getLogger(LoginThrottlingService.class);
+
+    public static final String LOGIN = "login";
+    public static final String IP = "ip";
+
+    private static final String PREFIX = "login-throttling:";
+    private static final String LOCKOUTS = PREFIX + "lockouts";
+
+    /**
+     * Find a locked subject.
+     * KEYS: for each subject the counter of the current window followed by the one of the previous window,
+     * ARGV: the weight of the previous window followed by the maximum failures of each subject.
+     * Return the position of the first locked subject, starting at 1, followed by its failures in the current and
+     * the previous windows, or 0 if none is.
+     */
+    static final String CHECK =
+        "local weight = tonumber(ARGV[1])\n" +
+        "for i = 1, #KEYS / 2 do\n" +
+        "    local current = tonumber(redis.call('GET', KEYS[i * 2 - 1]) or '0')\n" +
+        "    local previous = tonumber(redis.call('GET', KEYS[i * 2]) or '0')\n" +
+        "    if current + weight * previous >= tonumber(ARGV[i + 1]) then\n" +
+        "        return {i, current, previous}\n" +
+        "    end\n" +
+        "end\n" +
+        "return {0}";
+
+    /**
+     * Count a failure for several subjects, and add the subjects reaching their maximum to the lockouts.
+     * KEYS: the lockouts followed, for each subject, by the counter of the current window and the one of the previous window,
+     * ARGV: the time to live of the counters in milliseconds, the weight of the previous window, the time the subjects
+     * are unlocked at the latest, followed for each subject by its maximum failures and its name in the lockouts.
+     * Return the number of subjects locked.
+     */
+    static final String RECORD_FAILURE =
+        "local weight = tonumber(ARGV[2])\n" +
+        "local locked = 0\n" +
+        "for i = 1, (#KEYS - 1) / 2 do\n" +
+        "    local current = redis.call('INCR', KEYS[i * 2])\n" +
+        "    redis.call('PEXPIRE', KEYS[i * 2], ARGV[1])\n" +
+        "    local previous = tonumber(redis.call('GET', KEYS[i * 2 + 1]) or '0')\n" +
+        "    if current + weight * previous >= tonumber(ARGV[i * 2 + 2]) then\n" +
+        "        redis.call('ZADD', KEYS[1], ARGV[3], ARGV[i * 2 + 3])\n" +
+        "        locked = locked + 1\n" +
+        "    end\n" +
+        "end\n" +
+        "return locked";
+
+    /**
+     * Forget the failures of several subjects.
+     * KEYS: the lockouts followed by the counters, ARGV: the names of the subjects in the lockouts.
+     */
+    static final String CLEAR =
+        "for i = 2, #KEYS do\n" +
+        "    redis.call('DEL', KEYS[i])\n" +
+        "end\n" +
+        "for i = 1, #ARGV do\n" +
+        "    redis.call('ZREM', KEYS[1], ARGV[i])\n" +
+        "end\n" +
+        "return #ARGV";
+
+    /**
+     * List the lockouts, once the expired ones are removed.
+     * KEYS: the lockouts, ARGV: the current time. Return the names of the subjects, each one followed by its score.
+     */
+    static final String LIST_LOCKOUTS =
+        "redis.call('ZREMRANGEBYSCORE', KEYS[1], '-inf', ARGV[1])\n" +
+        "return redis.call('ZRANGE', KEYS[1], 0, -1, 'WITHSCORES')";
+
+    @ConfigProperty(name = "jhipster.security.login-throttling.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "jhipster.security.login-throttling.window-in-seconds", defaultValue = "300")
+    long windowInSeconds;
+
+    @ConfigProperty(name = "jhipster.security.login-throttling.login.max-failures", defaultValue = "5")
+    int maxLoginFailures;
+
+    @ConfigProperty(name = "jhipster.security.login-throttling.ip.max-failures", defaultValue = "0")
+    int maxIpFailures;
+
+    @ConfigProperty(name = "jhipster.security.login-throttling.timeout-in-millis", defaultValue = "200")
+    long timeoutInMillis;
+
+    @Inject
+    ReactiveRedisClient redis;
+
+    @Inject
+    MeterRegistry registry;
+
+    private final CircuitBreaker circuitBreaker = new CircuitBreaker(5, 5000);
+    private Duration timeout;
+    private Counter loginRejections;
+    private Counter ipRejections;
+    private Counter lockouts;
+    private Counter errors;
+
+    @PostConstruct
+    void init() {
+        this.timeout = Duration.ofMillis(timeoutInMillis);
+        this.loginRejections = rejections(LOGIN);
+        this.ipRejections = rejections(IP);
+        this.lockouts = Counter.builder("login.throttling.lockouts").description("Number of logins and IPs locked").register(registry);
+        this.errors =
+            Counter
+                .builder("login.throttling.errors")
+                .description("Number of logins let through as the failures could not be counted")
+                .register(registry);
+    }
+
+    /**
+     * Check whether a login attempt may proceed.
+     *
+     * @param login the login, or email, of the attempt.
+     * @param ip    the IP of the client.
+     * @return 0 if the attempt may proceed, the number of seconds to wait before the next attempt otherwise.
+     */
+    public long getRetryAfterInSeconds(String login, String ip) {
+        if (!enabled) {
+            return 0;
+        }
+        Window window = new Window();
+        List<String> arguments = new ArrayList<>();
+        arguments.add(CHECK);
+        arguments.add(isIpThrottled() ? "4" : "2");
+        arguments.addAll(window.keys(LOGIN, normalize(login)));
+        if (isIpThrottled()) {
+            arguments.addAll(window.keys(IP, ip));
+        }
+        arguments.add(String.valueOf(window.weight));
+        arguments.add(String.valueOf(maxLoginFailures));
+        if (isIpThrottled()) {
+            arguments.add(String.valueOf(maxIpFailures));
+        }
+        try {
+            Response locked = call(redis.eval(arguments));
+            int subject = locked.get(0).toInteger();
+            if (subject == 0) {
+                return 0;
+            }
+            (subject == 1 ? loginRejections : ipRejections).increment();
+            log.debug("Rejected a login attempt for {} from {}: too many failures", login, ip);
+            long unlockedAt = window.unlockedAt(
+                locked.get(1).toLong(),
+                locked.get(2).toLong(),
+                subject == 1 ? maxLoginFailures : maxIpFailures
+            );
+            return Math.max(1, (unlockedAt - window.now + 999) / 1000);
+        } catch (RuntimeException e) {
+            errors.increment();
+            log.warn("Could not check the login failures of {}, letting it through: {}", login, e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Count a failed login attempt, without waiting for Redis.
+     *
+     * @param login the login, or email, of the attempt.
+     * @param ip    the IP of the client.
+     */
+    public void recordFailure(String login, String ip) {
+        if (!enabled) {
+            return;
+        }
+        Window window = new Window();
+        String subject = normalize(login);
+        List<String> arguments = new ArrayList<>();
+        arguments.add(RECORD_FAILURE);
+        arguments.add(isIpThrottled() ? "5" : "3");
+        arguments.add(LOCKOUTS);
+        arguments.addAll(window.keys(LOGIN, subject));
+        if (isIpThrottled()) {
+            arguments.addAll(window.keys(IP, ip));
+        }
+        arguments.add(String.valueOf(window.length * 2));
+        arguments.add(String.valueOf(window.weight));
+        // the failures counted in this window weigh nothing at the end of the next one
+        arguments.add(String.valueOf(window.end + window.length));
+        arguments.addAll(Arrays.asList(String.valueOf(maxLoginFailures), LOGIN + ":" + subject));
+        if (isIpThrottled()) {
+            arguments.addAll(Arrays.asList(String.valueOf(maxIpFailures), IP + ":" + ip));
+        }
+        guard(redis.eval(arguments))
+            .subscribe()
+            .with(
+                locked -> {
+                    if (locked.toInteger() > 0) {
+                        lockouts.increment(locked.toInteger());
+                    }
+                },
+                failure -> {
+                    errors.increment();
+                    log.warn("Could not count the login failure of {}: {}", login, failure.getMessage());
+                }
+            );
+    }
+
+    /**
+     * Forget the failures of a login, e.g. once it logged in successfully.
+     *
+     * @param login the login, or email.
+     */
+    public void clearLogin(String login) {
+        if (!enabled) {
+            return;
+        }
+        guard(redis.eval(clearArguments(LOGIN, normalize(login))))
+            .subscribe()
+            .with(cleared -> {}, failure -> log.debug("Could not clear the login failures of {}: {}", login, failure.getMessage()));
+    }
+
+    /**
+     * Unlock a login or an IP.
+     *
+     * @param type  LOGIN or IP.
+     * @param value the login, or email, or the IP.
+     */
+    public void clear(String type, String value) {
+        call(redis.eval(clearArguments(type, LOGIN.equals(type) ? normalize(value) : value)));
+    }
+
+    /**
+     * @return the logins and IPs currently locked.
+     */
+    public List<LoginLockoutDTO> getLockouts() {
+        Window window = new Window();
+        Response response = call(redis.eval(Arrays.asList(LIST_LOCKOUTS, "1", LOCKOUTS, String.valueOf(window.now))));
+        List<LoginLockoutDTO> locked = new ArrayList<>();
+        if (response.size() == 0) {
+            return locked;
+        }
+
+        List<String> counters = new ArrayList<>();
+        for (int i = 0; i < response.size(); i += 2) {
+            String[] subject = response.get(i).toString().split(":", 2);
+            counters.addAll(window.keys(subject[0], subject[1]));
+        }
+        Response counts = call(redis.mget(counters));
+        for (int i = 0; i < response.size(); i += 2) {
+            String[] subject = response.get(i).toString().split(":", 2);
+            double failures = count(counts.get(i)) + window.weight * count(counts.get(i + 1));
+            if (failures < (LOGIN.equals(subject[0]) ? maxLoginFailures : maxIpFailures)) {
+                // locked a while ago, the failures no longer weigh enough
+                continue;
+            }
+            var lockout = new LoginLockoutDTO();
+            lockout.type = subject[0];
+            lockout.value = subject[1];
+            lockout.failures = (int) failures;
+            lockout.lockedUntil = Instant.ofEpochMilli((long) Double.parseDouble(response.get(i + 1).toString()));
+            locked.add(lockout);
+        }
+        return locked;
+    }
+
+    private boolean isIpThrottled() {
+        return maxIpFailures > 0;
+    }
+
+    private List<String> clearArguments(String type, String value) {
+        Window window = new Window();
+        List<String> arguments = new ArrayList<>();
+        arguments.add(CLEAR);
+        arguments.add("3");
+        arguments.add(LOCKOUTS);
+        arguments.addAll(window.keys(type, value));
+        arguments.add(type + ":" + value);
+        return arguments;
+    }
+
+    private static String normalize(String login) {
+        return login.toLowerCase(Locale.ENGLISH);
+    }
+
+    private static int count(Response counter) {
+        return counter == null ? 0 : counter.toInteger();
+    }
+
+    private Response call(Uni<Response> command) {
+        return guard(command).await().indefinitely();
+    }
+
+    /**
+     * Send a command through the circuit breaker, failing if Redis doesn't answer within the timeout.
+     */
+    private Uni<Response> guard(Uni<Response> command) {
+        return Uni
+            .createFrom()
+            .deferred(
+                () -> {
+                    if (!circuitBreaker.allowRequest()) {
+                        return Uni.createFrom().failure(new IllegalStateException("The circuit of the login throttling is open"));
+                    }
+                    return command
+                        .ifNoItem()
+                        .after(timeout)
+                        .fail()
+                        .onItem()
+                        .invoke(response -> circuitBreaker.onSuccess())
+                        .onFailure()
+                        .invoke(failure -> circuitBreaker.onFailure());
+                }
+            );
+    }
+
+    private Counter rejections(String subject) {
+        return Counter
+            .builder("login.throttling.rejections")
+            .description("Number of login attempts rejected before checking the credentials")
+            .tag("subject", subject)
+            .register(registry);
+    }
+
+    /**
+     * The fixed windows the sliding window spans at a given time.
+     */
+    private class Window {
+        final long now = System.currentTimeMillis();
+        final long length = windowInSeconds * 1000;
+        final long current = now / length;
+        final long start = current * length;
+        final long end = start + length;
+        // the part of the previous window still in the sliding window
+        final double weight = 1 - (double) (now - start) / length;
+
+        /**
+         * @return the counters of the current and the previous windows
+         */
+        List<String> keys(String type, String value) {
+            String key = PREFIX + type + ":" + value + ":";
+            return Arrays.asList(key + current, key + (current - 1));
+        }
+
+        /**
+         * @return the time at which the failures of a subject locked now no longer weigh maxFailures, as long as
+         * no failure is counted meanwhile
+         */
+        long unlockedAt(long currentFailures, long previousFailures, int maxFailures) {
+            if (currentFailures < maxFailures) {
+                // the failures of the previous window weigh less and less until the end of this one
+                return start + (long) Math.floor(length * (1 - (double) (maxFailures - currentFailures) / previousFailures)) + 1;
+            }
+            // then the failures of this window weigh less and less until the end of the next one
+            return end + (long) Math.floor(length * (1 - (double) maxFailures / currentFailures)) + 1;
+        }
+    }
+}
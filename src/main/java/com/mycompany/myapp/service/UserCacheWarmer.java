@@ -0,0 +1,173 @@
+package com.mycompany.myapp.service;
+
+import com.mycompany.myapp.cache.redis.RedisInvalidationListener;
+import com.mycompany.myapp.cache.redis.UserRedisCache;
+import com.mycompany.myapp.domain.User;
+import io.quarkus.panache.common.Page;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import javax.transaction.Transactional;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.health.HealthCheck;
+import org.eclipse.microprofile.health.HealthCheckResponse;
+import org.eclipse.microprofile.health.HealthCheckResponseBuilder;
+import org.eclipse.microprofile.health.Readiness;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Preloads the most recently modified users in the user cache, so that the first logins after a deploy,
+ * or after Redis lost its entries, don't all reach the database.
+ *
+ * The warm-up runs at startup, and every time the connection to Redis is re-established. The users are read
+ * by pages, several pages at once, and each page is stored in a single round trip. The users already cached,
+ * or updated while the warm-up runs, are left untouched, see RedisCache.preload().
+ * - jhipster.cache.user.warm-up.max-users: the number of users preloaded (disabled when 0, the default)
+ * - jhipster.cache.user.warm-up.page-size: the number of users read and stored at once (100 by default)
+ * - jhipster.cache.user.warm-up.parallelism: the number of pages handled at once (2 by default)
+ *
+ * Its progress is reported by a readiness check, which stays up: the application can serve requests
+ * while the cache is warming up, only slower.
+ */
+@Readiness
+@ApplicationScoped
+public class UserCacheWarmer implements HealthCheck {
+    private final Logger log = LoggerFactory.getLogger(UserCacheWarmer.class);
+
+    public enum State {
+        DISABLED,
+        PENDING,
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+
+    @Inject
+    UserRedisCache userRedisCache;
+
+    @Inject
+    RedisInvalidationListener invalidationListener;
+
+    @ConfigProperty(name = "jhipster.cache.user.warm-up.max-users", defaultValue = "0")
+    int maxUsers;
+
+    @ConfigProperty(name = "jhipster.cache.user.warm-up.page-size", defaultValue = "100")
+    int pageSize;
+
+    @ConfigProperty(name = "jhipster.cache.user.warm-up.parallelism", defaultValue = "2")
+    int parallelism;
+
+    private final AtomicInteger loadedUsers = new AtomicInteger();
+    private final AtomicInteger storedKeys = new AtomicInteger();
+    private volatile State state = State.PENDING;
+    private volatile Instant startedAt;
+    private volatile Instant completedAt;
+    private CompletableFuture<Integer> warmUp;
+
+    void onStart(@Observes StartupEvent event) {
+        if (maxUsers <= 0) {
+            state = State.DISABLED;
+            return;
+        }
+        invalidationListener.onReconnect(this::warmUp);
+        warmUp();
+    }
+
+    /**
+     * Start a warm-up in background, unless one is already running.
+     *
+     * @return the number of users read, once the warm-up is done
+     */
+    public synchronized CompletableFuture<Integer> warmUp() {
+        if (maxUsers <= 0) {
+            return CompletableFuture.completedFuture(0);
+        }
+        if (warmUp != null && !warmUp.isDone()) {
+            return warmUp;
+        }
+        log.info("Warming up the user cache with the {} most recently modified users", maxUsers);
+        loadedUsers.set(0);
+        storedKeys.set(0);
+        state = State.RUNNING;
+        startedAt = Instant.now();
+        completedAt = null;
+
+        int pages = (maxUsers + pageSize - 1) / pageSize;
+        AtomicInteger nextPage = new AtomicInteger();
+        List<CompletableFuture<Void>> workers = new ArrayList<>();
+        for (int i = 0; i < Math.min(parallelism, pages); i++) {
+            workers.add(CompletableFuture.runAsync(() -> warmUpPages(nextPage, pages), Infrastructure.getDefaultWorkerPool()));
+        }
+        warmUp =
+            CompletableFuture
+                .allOf(workers.toArray(new CompletableFuture[0]))
+                .thenApply(done -> loadedUsers.get())
+                .whenComplete(
+                    (users, error) -> {
+                        completedAt = Instant.now();
+                        if (error != null) {
+                            state = State.FAILED;
+                            log.warn("Could not warm up the user cache: {}", error.getMessage());
+                        } else {
+                            state = State.COMPLETED;
+                            log.info("Warmed up the user cache with {} users, {} keys stored", users, storedKeys.get());
+                        }
+                    }
+                );
+        return warmUp;
+    }
+
+    /**
+     * Take the next page to warm up until there is none left, or no more users.
+     */
+    private void warmUpPages(AtomicInteger nextPage, int pages) {
+        int page;
+        while ((page = nextPage.getAndIncrement()) < pages) {
+            List<User> users = this.findUsers(Page.of(page, pageSize));
+            Map<String, User> values = new LinkedHashMap<>();
+            users.stream().limit(maxUsers - (long) page * pageSize).forEach(user -> values.put(user.login, user));
+            storedKeys.addAndGet(userRedisCache.preload(values, user -> user.email));
+            loadedUsers.addAndGet(values.size());
+            if (users.size() < pageSize) {
+                nextPage.set(pages);
+            }
+        }
+    }
+
+    @Transactional
+    List<User> findUsers(Page page) {
+        return User.findAllWithAuthoritiesByOrderByLastModifiedDateDesc(page);
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    @Override
+    public HealthCheckResponse call() {
+        HealthCheckResponseBuilder response = HealthCheckResponse
+            .named("User cache warm-up")
+            .up()
+            .withData("state", state.name())
+            .withData("maxUsers", maxUsers)
+            .withData("loadedUsers", loadedUsers.get())
+            .withData("storedKeys", storedKeys.get());
+        if (startedAt != null) {
+            response.withData("startedAt", startedAt.toString());
+        }
+        if (completedAt != null) {
+            response.withData("completedAt", completedAt.toString());
+        }
+        return response.build();
+    }
+}
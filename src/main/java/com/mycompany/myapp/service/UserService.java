@@ -5,10 +5,15 @@ import com.mycompany.myapp.domain.Authority;
 import com.mycompany.myapp.domain.User;
 import com.mycompany.myapp.security.AuthoritiesConstants;
 import com.mycompany.myapp.security.BCryptPasswordHasher;
+import com.mycompany.myapp.security.CredentialVerificationCache;
 import com.mycompany.myapp.security.RandomUtil;
 import com.mycompany.myapp.service.dto.UserDTO;
+import com.mycompany.myapp.cache.redis.ReactiveUserRedisCache;
+import com.mycompany.myapp.cache.redis.RedisCacheTransactions;
 import com.mycompany.myapp.cache.redis.UserRedisCache;
 import io.quarkus.panache.common.Page;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -17,6 +22,7 @@ import javax.inject.Inject;
 import javax.transaction.Transactional;
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.CompletionStage;
 import java.util.stream.Collectors;
 
 @ApplicationScoped
@@ -29,6 +35,15 @@ public class UserService {
     @Inject
     UserRedisCache userRedisCache;
 
+    @Inject
+    ReactiveUserRedisCache reactiveUserRedisCache;
+
+    @Inject
+    RedisCacheTransactions cacheTransactions;
+
+    @Inject
+    CredentialVerificationCache verificationCache;
+
     @Inject
     public UserService(BCryptPasswordHasher passwordHasher) {
         this.passwordHasher = passwordHasher;
@@ -43,7 +58,7 @@ public class UserService {
                     // activate given user for the registration key.
                     user.activated = true;
                     user.activationKey = null;
-                    this.clearUserCaches(user);
+                    this.patchUserCaches(user, "activated", "activationKey");
                     log.debug("Activated user: {}", user);
                     return user;
                 }
@@ -58,9 +73,10 @@ public class UserService {
             .map(
                 user -> {
                     user.password = passwordHasher.hash(newPassword);
+                    verificationCache.invalidate(user.login);
                     user.resetKey = null;
                     user.resetDate = null;
-                    this.clearUserCaches(user);
+                    this.refreshUserCaches(user);
                     return user;
                 }
             );
@@ -74,7 +90,7 @@ public class UserService {
                 user -> {
                     user.resetKey = RandomUtil.generateResetKey();
                     user.resetDate = Instant.now();
-                    this.clearUserCaches(user);
+                    this.refreshUserCaches(user);
                     return user;
                 }
             );
@@ -120,7 +136,7 @@ public class UserService {
         Authority.<Authority>findByIdOptional(AuthoritiesConstants.USER).ifPresent(authorities::add);
         newUser.authorities = authorities;
         User.persist(newUser);
-        this.clearUserCaches(newUser);
+        this.refreshUserCaches(newUser);
         log.debug("Created Information for User: {}", newUser);
         return newUser;
     }
@@ -161,7 +177,7 @@ public class UserService {
                 .collect(Collectors.toSet());
         }
         User.persist(user);
-        this.clearUserCaches(user);
+        this.refreshUserCaches(user);
         log.debug("Created Information for User: {}", user);
         return user;
     }
@@ -181,6 +197,7 @@ public class UserService {
             .findOneByLogin(login)
             .ifPresent(
                 user -> {
+                    String previousEmail = user.email;
                     user.firstName = firstName;
                     user.lastName = lastName;
                     if (email != null) {
@@ -188,7 +205,15 @@ public class UserService {
                     }
                     user.langKey = langKey;
                     user.imageUrl = imageUrl;
-                    this.clearUserCaches(user);
+                    if (Objects.equals(previousEmail, user.email)) {
+                        this.patchUserCaches(user, "firstName", "lastName", "langKey", "imageUrl");
+                    } else {
+                        // the email is an alias to the login entry, the previous one must not point to it anymore
+                        if (previousEmail != null) {
+                            cacheTransactions.evictAfterCommit(userRedisCache, Collections.singletonList(previousEmail));
+                        }
+                        this.refreshUserCaches(user);
+                    }
                     log.debug("Changed Information for User: {}", user);
                 }
             );
@@ -222,7 +247,7 @@ public class UserService {
                         .filter(Optional::isPresent)
                         .map(Optional::get)
                         .forEach(managedAuthorities::add);
-                    this.clearUserCaches(user);
+                    this.refreshUserCaches(user);
                     log.debug("Changed Information for User: {}", user);
                     return user;
                 }
@@ -236,6 +261,7 @@ public class UserService {
             .ifPresent(
                 user -> {
                     User.delete("id", user.id);
+                    verificationCache.invalidate(user.login);
                     this.clearUserCaches(user);
                     log.debug("Deleted User: {}", user);
                 }
@@ -252,14 +278,73 @@ public class UserService {
                         throw new InvalidPasswordException();
                     }
                     user.password = passwordHasher.hash(newPassword);
-                    this.clearUserCaches(user);
+                    verificationCache.invalidate(user.login);
+                    this.refreshUserCaches(user);
                     log.debug("Changed password for User: {}", user);
                 }
             );
     }
 
+    /**
+     * Replace the password hash of a user by a new hash of the same password, e.g. with another cost.
+     * Nothing is done if the password changed since the new hash was computed.
+     *
+     * @param login                    the login of the user.
+     * @param currentEncryptedPassword the hash the new one replaces.
+     * @param newEncryptedPassword     the new hash.
+     */
+    public void upgradePasswordHash(String login, String currentEncryptedPassword, String newEncryptedPassword) {
+        User
+            .findOneByLogin(login)
+            .filter(user -> currentEncryptedPassword.equals(user.password))
+            .ifPresent(
+                user -> {
+                    // only replaces the hash it was computed from, should the password be changed concurrently
+                    long updated = User.update(
+                        "password = ?1 where id = ?2 and password = ?3",
+                        newEncryptedPassword,
+                        user.id,
+                        currentEncryptedPassword
+                    );
+                    if (updated == 0) {
+                        return;
+                    }
+                    user.password = newEncryptedPassword;
+                    this.refreshUserCaches(user);
+                    log.debug("Upgraded password hash for User: {}", user);
+                }
+            );
+    }
+
     public Optional<User> getUserWithAuthoritiesByLogin(String login) {
-        return userRedisCache.get(login, () -> User.findOneWithAuthoritiesByLogin(login));
+        // the loader runs in its own transaction, as the entry may be refreshed in background
+        return userRedisCache.get(login, () -> this.findOneWithAuthoritiesByLogin(login));
+    }
+
+    /**
+     * Same as getUserWithAuthoritiesByLogin, without blocking the caller: a cache hit completes without
+     * a worker thread, a miss loads the user on a worker thread in its own transaction.
+     *
+     * @param login the login of the user.
+     * @return the user, when loaded.
+     */
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public CompletionStage<Optional<User>> getUserWithAuthoritiesByLoginAsync(String login) {
+        return reactiveUserRedisCache
+            .get(
+                login,
+                () ->
+                    Uni
+                        .createFrom()
+                        .item(() -> this.findOneWithAuthoritiesByLogin(login))
+                        .runSubscriptionOn(Infrastructure.getDefaultWorkerPool())
+            )
+            .subscribeAsCompletionStage();
+    }
+
+    @Transactional
+    User findOneWithAuthoritiesByLogin(String login) {
+        return User.findOneWithAuthoritiesByLogin(login);
     }
 
     public List<UserDTO> getAllManagedUsers() {
@@ -270,15 +355,46 @@ public class UserService {
         return Authority.<Authority>streamAll().map(authority -> authority.name).collect(Collectors.toList());
     }
 
+    /**
+     * Publish the new state of an updated user to the cache: it is written through once the transaction
+     * is committed when the user cache is in write-through mode, and evicted otherwise.
+     *
+     * @param user the updated user.
+     */
+    public void refreshUserCaches(User user) {
+        if (!userRedisCache.isWriteThrough()) {
+            this.clearUserCaches(user);
+            return;
+        }
+        cacheTransactions.setAfterCommit(userRedisCache, user.login, user, user.email);
+    }
+
+    /**
+     * Publish the new values of some properties of an updated user to the cache: they are patched in the cached
+     * user once the transaction is committed when the user cache is in write-through mode, and the user is evicted
+     * otherwise.
+     *
+     * @param user the updated user.
+     * @param properties the updated properties, which must not include the login nor the email.
+     */
+    public void patchUserCaches(User user, String... properties) {
+        if (!userRedisCache.isWriteThrough()) {
+            this.clearUserCaches(user);
+            return;
+        }
+        cacheTransactions.patchAfterCommit(userRedisCache, user.login, user, properties);
+    }
+
     public void clearUserCaches(User user) {
         List<Object> keys = new ArrayList<>();
         keys.add(user.login);
 
         if (user.email != null) {
+            // the email is an alias to the login entry, it has to go too as the email may change
             keys.add(user.email);
         }
 
-        userRedisCache.evict(keys);
+        cacheTransactions.evictAfterCommit(userRedisCache, keys);
     }
 
 }
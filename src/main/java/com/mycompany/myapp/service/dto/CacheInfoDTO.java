@@ -0,0 +1,27 @@
+package com.mycompany.myapp.service.dto;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+*  DTO for the /management/caches response: the most read keys of a cache
+*/
+@RegisterForReflection
+public class CacheInfoDTO {
+
+    public String name;
+
+    public List<HotKey> hotKeys = new ArrayList<>();
+
+    @RegisterForReflection
+    public static class HotKey {
+
+        public String key;
+
+        public int reads;
+
+        public boolean pinned;
+    }
+}
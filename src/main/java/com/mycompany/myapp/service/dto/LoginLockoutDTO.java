@@ -0,0 +1,23 @@
+package com.mycompany.myapp.service.dto;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+import java.time.Instant;
+
+/**
+*  DTO for the /management/login-throttling response: a login or an IP locked after too many failed logins
+*/
+@RegisterForReflection
+public class LoginLockoutDTO {
+
+    /**
+     * login or ip
+     */
+    public String type;
+
+    public String value;
+
+    public int failures;
+
+    public Instant lockedUntil;
+}
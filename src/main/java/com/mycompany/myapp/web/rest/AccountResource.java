@@ -120,11 +120,10 @@ public class AccountResource {
     @GET
     @Path("/account")
     @Authenticated
-    public UserDTO getAccount(@Context SecurityContext ctx) {
+    public CompletionStage<UserDTO> getAccount(@Context SecurityContext ctx) {
         return userService
-            .getUserWithAuthoritiesByLogin(ctx.getUserPrincipal().getName())
-            .map(UserDTO::new)
-            .orElseThrow(() -> new AccountResourceException("User could not be found"));
+            .getUserWithAuthoritiesByLoginAsync(ctx.getUserPrincipal().getName())
+            .thenApply(user -> user.map(UserDTO::new).orElseThrow(() -> new AccountResourceException("User could not be found")));
     }
 
     /**
@@ -0,0 +1,31 @@
+package com.mycompany.myapp.web.rest;
+
+import com.mycompany.myapp.service.CacheInfoService;
+
+import javax.enterprise.context.RequestScoped;
+import javax.inject.Inject;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+@Path("/management/caches")
+@Produces(MediaType.APPLICATION_JSON)
+@Consumes(MediaType.APPLICATION_JSON)
+@RequestScoped
+public class CacheResource {
+
+    private final CacheInfoService cacheInfoService;
+
+    @Inject
+    public CacheResource(CacheInfoService cacheInfoService) {
+        this.cacheInfoService = cacheInfoService;
+    }
+
+    @GET
+    public Response caches(){
+        return Response.ok(cacheInfoService.getCacheInfos()).build();
+    }
+}
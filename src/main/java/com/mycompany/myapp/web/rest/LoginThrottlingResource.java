@@ -0,0 +1,51 @@
+package com.mycompany.myapp.web.rest;
+
+import com.mycompany.myapp.service.LoginThrottlingService;
+import com.mycompany.myapp.web.rest.errors.BadRequestAlertException;
+
+import javax.enterprise.context.RequestScoped;
+import javax.inject.Inject;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.DELETE;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+@Path("/management/login-throttling")
+@Produces(MediaType.APPLICATION_JSON)
+@Consumes(MediaType.APPLICATION_JSON)
+@RequestScoped
+public class LoginThrottlingResource {
+
+    private final LoginThrottlingService loginThrottlingService;
+
+    @Inject
+    public LoginThrottlingResource(LoginThrottlingService loginThrottlingService) {
+        this.loginThrottlingService = loginThrottlingService;
+    }
+
+    @GET
+    public Response lockouts() {
+        return Response.ok(loginThrottlingService.getLockouts()).build();
+    }
+
+    /**
+     * {@code DELETE /management/login-throttling/:type/:value} : unlock a login or an IP.
+     *
+     * @param type  login or ip.
+     * @param value the login or the IP to unlock.
+     * @return the {@link Response} with status {@code 204 (NO_CONTENT)}.
+     */
+    @DELETE
+    @Path("/{type}/{value}")
+    public Response clear(@PathParam("type") String type, @PathParam("value") String value) {
+        if (!LoginThrottlingService.LOGIN.equals(type) && !LoginThrottlingService.IP.equals(type)) {
+            throw new BadRequestAlertException("The type must be login or ip", "loginThrottling", "invalidtype");
+        }
+        loginThrottlingService.clear(type, value);
+        return Response.noContent().build();
+    }
+}
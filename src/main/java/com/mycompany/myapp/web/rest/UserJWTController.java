@@ -1,19 +1,27 @@
 package com.mycompany.myapp.web.rest;
 
+import com.mycompany.myapp.security.PasswordHashingRejectedException;
 import com.mycompany.myapp.security.jwt.TokenProvider;
 import com.mycompany.myapp.service.AuthenticationService;
+import com.mycompany.myapp.service.LoginThrottlingService;
 import com.mycompany.myapp.web.rest.vm.LoginVM;
 import io.quarkus.runtime.annotations.RegisterForReflection;
-import io.quarkus.security.runtime.QuarkusSecurityIdentity;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
 import javax.annotation.security.PermitAll;
 import javax.enterprise.context.RequestScoped;
 import javax.inject.Inject;
 import javax.json.bind.annotation.JsonbProperty;
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
 import javax.ws.rs.Consumes;
+import javax.ws.rs.NotAuthorizedException;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import org.slf4j.Logger;
@@ -33,24 +41,70 @@ public class UserJWTController {
 
     final TokenProvider tokenProvider;
 
+    final LoginThrottlingService loginThrottlingService;
+
     @Inject
-    public UserJWTController(AuthenticationService authenticationService, TokenProvider tokenProvider) {
+    public UserJWTController(
+        AuthenticationService authenticationService,
+        TokenProvider tokenProvider,
+        LoginThrottlingService loginThrottlingService
+    ) {
         this.authenticationService = authenticationService;
         this.tokenProvider = tokenProvider;
+        this.loginThrottlingService = loginThrottlingService;
     }
 
     @POST
     @Path("/authenticate")
     @PermitAll
-    public Response authorize(@Valid LoginVM loginVM) {
+    public CompletionStage<Response> authorize(@Valid LoginVM loginVM, @Context HttpServletRequest request) {
+        String ip = request.getRemoteAddr();
+        // the logins and IPs which failed too often are rejected before the costly checks
+        long lockedFor = loginThrottlingService.getRetryAfterInSeconds(loginVM.username, ip);
+        if (lockedFor > 0) {
+            return CompletableFuture.completedFuture(Response.status(429).header(HttpHeaders.RETRY_AFTER, lockedFor).build());
+        }
+
+        boolean rememberMe = (loginVM.rememberMe == null) ? false : loginVM.rememberMe;
         try {
-            QuarkusSecurityIdentity identity = authenticationService.authenticate(loginVM.username, loginVM.password);
-            boolean rememberMe = (loginVM.rememberMe == null) ? false : loginVM.rememberMe;
-            String jwt = tokenProvider.createToken(identity, rememberMe);
-            return Response.ok().entity(new JWTToken(jwt)).header("Authorization", "Bearer " + jwt).build();
+            return authenticationService
+                .authenticate(loginVM.username, loginVM.password)
+                .thenApply(
+                    identity -> {
+                        loginThrottlingService.clearLogin(loginVM.username);
+                        String jwt = tokenProvider.createToken(identity, rememberMe);
+                        return Response.ok().entity(new JWTToken(jwt)).header("Authorization", "Bearer " + jwt).build();
+                    }
+                )
+                .exceptionally(throwable -> failure(throwable, loginVM.username, ip));
         } catch (SecurityException e) {
+            loginThrottlingService.recordFailure(loginVM.username, ip);
+            return CompletableFuture.completedFuture(Response.status(401).build());
+        } catch (NotAuthorizedException e) {
+            // unknown or not activated user
+            loginThrottlingService.recordFailure(loginVM.username, ip);
+            throw e;
+        }
+    }
+
+    /**
+     * Answer 401 to a wrong password, and record the failure for the throttling. The other failures are rethrown
+     * unwrapped, for their exception mapper, e.g. a PasswordHashingRejectedException is answered by
+     * PasswordHashingRejectedExceptionMapper.
+     */
+    private Response failure(Throwable throwable, String login, String ip) {
+        Throwable cause = throwable instanceof CompletionException ? throwable.getCause() : throwable;
+        if (cause instanceof SecurityException) {
+            loginThrottlingService.recordFailure(login, ip);
             return Response.status(401).build();
         }
+        if (cause instanceof PasswordHashingRejectedException) {
+            log.debug("Authentication rejected: the password hashing executor is saturated");
+        }
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        throw new CompletionException(cause);
     }
 
     /**
@@ -14,6 +14,7 @@ import com.mycompany.myapp.web.util.HeaderUtil;
 import com.mycompany.myapp.web.util.ResponseUtil;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletionStage;
 import javax.annotation.security.RolesAllowed;
 import javax.enterprise.context.RequestScoped;
 import javax.inject.Inject;
@@ -166,9 +167,9 @@ public class UserResource {
     @GET
     //    @Path("/{login : " + Constants.LOGIN_REGEX + "}")
     @Path("/{login}")
-    public Response getUser(@PathParam("login") String login) {
+    public CompletionStage<Response> getUser(@PathParam("login") String login) {
         log.debug("REST request to get User : {}", login);
-        return ResponseUtil.wrapOrNotFound(userService.getUserWithAuthoritiesByLogin(login).map(UserDTO::new));
+        return userService.getUserWithAuthoritiesByLoginAsync(login).thenApply(user -> ResponseUtil.wrapOrNotFound(user.map(UserDTO::new)));
     }
 
     /**
@@ -0,0 +1,25 @@
+package com.mycompany.myapp.web.rest.errors;
+
+import static javax.ws.rs.core.Response.Status.SERVICE_UNAVAILABLE;
+
+import com.mycompany.myapp.security.PasswordHashingRejectedException;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.ExceptionMapper;
+import javax.ws.rs.ext.Provider;
+
+/**
+ * Sheds the requests which can't be served because the passwords can't be hashed in time: 503 with a Retry-After header.
+ */
+@Provider
+public class PasswordHashingRejectedExceptionMapper implements ExceptionMapper<PasswordHashingRejectedException> {
+
+    @Override
+    public Response toResponse(PasswordHashingRejectedException exception) {
+        return Response
+            .status(SERVICE_UNAVAILABLE)
+            .header(HttpHeaders.RETRY_AFTER, exception.getRetryAfterInSeconds())
+            .header("message", "error.overloaded")
+            .build();
+    }
+}
@@ -0,0 +1,11 @@
+package com.mycompany.myapp.cache.redis;
+
+import javax.inject.Singleton;
+
+@Singleton
+public class FooRedisHashCache extends RedisHashCache<Foo> {
+
+    public FooRedisHashCache() {
+        super("FooHash:");
+    }
+}
@@ -0,0 +1,13 @@
+package com.mycompany.myapp.cache.redis;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+@Singleton
+public class ReactiveFooRedisCache extends ReactiveRedisCache<Foo> {
+
+    @Inject
+    public ReactiveFooRedisCache(FooRedisCache fooRedisCache) {
+        super(fooRedisCache);
+    }
+}
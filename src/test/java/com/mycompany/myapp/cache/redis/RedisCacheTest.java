@@ -1,8 +1,17 @@
 package com.mycompany.myapp.cache.redis;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.mycompany.myapp.cache.CacheErrorException;
+import com.mycompany.myapp.cache.CircuitBreaker;
+import com.mycompany.myapp.cache.codec.JsonCacheCodec;
+import com.mycompany.myapp.cache.codec.SmileCacheCodec;
 import com.mycompany.myapp.domain.User;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.vertx.redis.client.Command;
+import io.vertx.redis.client.Request;
+import io.quarkus.redis.client.RedisClient;
 import io.quarkus.test.junit.QuarkusTest;
+import io.smallrye.mutiny.Uni;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
@@ -10,10 +19,26 @@ import org.junit.jupiter.api.Test;
 import redis.embedded.RedisServer;
 
 import javax.inject.Inject;
+import javax.transaction.UserTransaction;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.AssertionsForClassTypes.catchThrowable;
@@ -24,6 +49,16 @@ class RedisCacheTest {
     FooRedisCache fooRedisCache;
     @Inject
     UserRedisCache userRedisCache;
+    @Inject
+    ReactiveFooRedisCache reactiveFooRedisCache;
+    @Inject
+    MeterRegistry registry;
+    @Inject
+    RedisClient redis;
+    @Inject
+    RedisCacheTransactions cacheTransactions;
+    @Inject
+    UserTransaction userTransaction;
 
     private final String FOO_PREFIX = "Foo:";
     static RedisServer server;
@@ -206,6 +241,584 @@ class RedisCacheTest {
         assertThat(fooRedisCache.serialize(null)).isNull();
     }
 
+    @Test
+    void should_ServeRepeatedReadsFromTheNearCache() {
+        Foo foo = foo();
+        fooRedisCache.set(foo.name, foo);
+
+        redis.del(Collections.singletonList(fooRedisCache.generateKey(foo.name)));
+        Optional<Foo> fooInCache = fooRedisCache.get(foo.name, null);
+
+        assertThat(fooInCache).isNotEmpty().contains(foo);
+    }
+
+    @Test
+    void should_EvictRemoveTheEntryFromTheNearCache() {
+        Foo foo = foo();
+        fooRedisCache.set(foo.name, foo);
+        assertThat(fooRedisCache.nearCache.get(fooRedisCache.generateKey(foo.name))).isEqualTo(foo);
+
+        fooRedisCache.evict(foo.name);
+
+        assertThat(fooRedisCache.nearCache.get(fooRedisCache.generateKey(foo.name))).isNull();
+    }
+
+    @Test
+    void should_ClearEmptyTheNearCache() {
+        fooRedisCache.set("bar", foo());
+        fooRedisCache.set("otherBar", foo("otherBar"));
+
+        fooRedisCache.clear();
+
+        assertThat(fooRedisCache.nearCache.size()).isZero();
+    }
+
+    @Test
+    void should_InvalidationFromAnotherNodeRemoveTheEntryFromTheNearCache() throws JsonProcessingException {
+        Foo foo = foo();
+        String fooKey = fooRedisCache.generateKey(foo.name);
+        fooRedisCache.set(foo.name, foo);
+
+        CacheInvalidation invalidation = new CacheInvalidation("otherNode", Collections.singletonList(fooKey));
+        fooRedisCache.onInvalidation(fooRedisCache.objectMapper.writeValueAsString(invalidation));
+
+        assertThat(fooRedisCache.nearCache.get(fooKey)).isNull();
+    }
+
+    @Test
+    void should_InvalidationFromTheSameNodeBeIgnored() throws JsonProcessingException {
+        Foo foo = foo();
+        String fooKey = fooRedisCache.generateKey(foo.name);
+        fooRedisCache.set(foo.name, foo);
+
+        CacheInvalidation invalidation = new CacheInvalidation(RedisInvalidationListener.NODE_ID, null);
+        fooRedisCache.onInvalidation(fooRedisCache.objectMapper.writeValueAsString(invalidation));
+
+        assertThat(fooRedisCache.nearCache.get(fooKey)).isEqualTo(foo);
+    }
+
+    @Test
+    void should_GetAllReturnCachedValuesAndLoadOnlyTheMissingOnes() {
+        Foo foo1 = foo();
+        Foo foo2 = foo("otherBar");
+        fooRedisCache.set(foo1.name, foo1);
+        List<Set<String>> loadedIdentifiers = new ArrayList<>();
+
+        Map<String, Foo> result = fooRedisCache.getAll(
+            Arrays.asList(foo1.name, foo2.name),
+            identifiers -> {
+                loadedIdentifiers.add(identifiers);
+                return Collections.singletonMap(foo2.name, foo2);
+            }
+        );
+
+        assertThat(result).hasSize(2).containsEntry(foo1.name, foo1).containsEntry(foo2.name, foo2);
+        assertThat(loadedIdentifiers).containsExactly(Collections.singleton(foo2.name));
+        assertThat(fooRedisCache.keys()).hasSize(2);
+    }
+
+    @Test
+    void should_SetAllStoreEveryValueInCache() {
+        Foo foo1 = foo();
+        Foo foo2 = foo("otherBar");
+        Map<String, Foo> values = new HashMap<>();
+        values.put(foo1.name, foo1);
+        values.put(foo2.name, foo2);
+
+        fooRedisCache.setAll(values);
+
+        assertThat(fooRedisCache.keys())
+            .hasSize(2)
+            .containsAll(Arrays.asList(fooRedisCache.generateKey(foo1.name), fooRedisCache.generateKey(foo2.name)));
+    }
+
+    @Test
+    void should_ClearEvictMoreKeysThanOneScanBatch() {
+        Map<String, Foo> values = new HashMap<>();
+        for (int i = 0; i < fooRedisCache.scanCount * 3; i++) {
+            values.put("bar" + i, foo("bar" + i));
+        }
+        fooRedisCache.setAll(values);
+        assertThat(fooRedisCache.keys()).hasSize(values.size());
+
+        fooRedisCache.clear();
+
+        assertThat(fooRedisCache.keys()).isEmpty();
+    }
+
+    @Test
+    void should_StoreAFooWithAnExpirationIncludingTheJitter() {
+        Foo foo = foo();
+
+        fooRedisCache.set(foo.name, foo);
+        long timeToLive = redis.pttl(fooRedisCache.generateKey(foo.name)).toLong();
+
+        assertThat(timeToLive).isPositive().isLessThanOrEqualTo(90_000L);
+    }
+
+    @Test
+    void should_SetAllStoreEveryValueWithAnExpiration() {
+        Map<String, Foo> values = new HashMap<>();
+        values.put("bar", foo());
+        values.put("otherBar", foo("otherBar"));
+
+        fooRedisCache.setAll(values);
+
+        for (String key : fooRedisCache.keys()) {
+            assertThat(redis.pttl(key).toLong()).isPositive().isLessThanOrEqualTo(90_000L);
+        }
+    }
+
+    @Test
+    void should_ConcurrentMissesRunTheLoaderOnce() throws Exception {
+        Foo foo = foo();
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        try {
+            List<Future<Optional<Foo>>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(
+                    executor.submit(
+                        () -> {
+                            start.await();
+                            return fooRedisCache.get(
+                                foo.name,
+                                () -> {
+                                    loads.incrementAndGet();
+                                    try {
+                                        Thread.sleep(200);
+                                    } catch (InterruptedException e) {
+                                        Thread.currentThread().interrupt();
+                                    }
+                                    return foo;
+                                }
+                            );
+                        }
+                    )
+                );
+            }
+            start.countDown();
+
+            for (Future<Optional<Foo>> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS)).contains(foo);
+            }
+            assertThat(loads.get()).isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void should_LoadLockBeReleasedAfterTheLoad() {
+        Foo foo = foo();
+
+        fooRedisCache.get(foo.name, () -> foo);
+
+        assertThat(redis.exists(Collections.singletonList("lock:" + fooRedisCache.generateKey(foo.name))).toInteger())
+            .isZero();
+    }
+
+    @Test
+    void should_CacheTheAbsenceOfAValueUntilItIsEvicted() {
+        AtomicInteger loads = new AtomicInteger();
+        Supplier<Foo> missingLoader = () -> {
+            loads.incrementAndGet();
+            return null;
+        };
+
+        assertThat(fooRedisCache.get("unknown", missingLoader)).isEmpty();
+        assertThat(fooRedisCache.get("unknown", missingLoader)).isEmpty();
+        assertThat(loads.get()).isEqualTo(1);
+
+        fooRedisCache.evict("unknown");
+        Foo created = foo("unknown");
+
+        assertThat(fooRedisCache.get("unknown", () -> created)).contains(created);
+    }
+
+    @Test
+    void should_GetAllCacheTheAbsenceOfTheValuesNotLoaded() {
+        AtomicInteger loads = new AtomicInteger();
+        Function<Set<String>, Map<String, Foo>> missingLoader = identifiers -> {
+            loads.incrementAndGet();
+            return Collections.emptyMap();
+        };
+
+        assertThat(fooRedisCache.getAll(Collections.singletonList("unknown"), missingLoader)).isEmpty();
+        assertThat(fooRedisCache.getAll(Collections.singletonList("unknown"), missingLoader)).isEmpty();
+
+        assertThat(loads.get()).isEqualTo(1);
+    }
+
+    @Test
+    void should_NotCacheAValueEvictedDuringItsLoad() {
+        Foo stale = foo();
+        Supplier<Foo> loaderRacingAnUpdate = () -> {
+            fooRedisCache.evict(stale.name);
+            return stale;
+        };
+
+        assertThat(fooRedisCache.get(stale.name, loaderRacingAnUpdate)).contains(stale);
+
+        assertThat(fooRedisCache.keys()).isEmpty();
+        assertThat(fooRedisCache.get(stale.name, null)).isEmpty();
+        assertThat(redis.get(RedisCache.generationKey(fooRedisCache.generateKey(stale.name)))).isNotNull();
+    }
+
+    @Test
+    void should_RefreshOnlyTheEntriesAboutToExpire() {
+        assertThat(fooRedisCache.shouldRefresh(0)).isTrue();
+        assertThat(fooRedisCache.shouldRefresh(-1)).isFalse();
+        assertThat(fooRedisCache.shouldRefresh(TimeUnit.HOURS.toMillis(1))).isFalse();
+    }
+
+    @Test
+    void should_RefreshAnEntryInBackgroundBeforeItExpires() throws InterruptedException {
+        String key = fooRedisCache.generateKey("bar");
+        fooRedisCache.set("bar", foo());
+        redis.pexpire(key, "1000");
+        fooRedisCache.nearCache.clear();
+        double averageLoadMillis = fooRedisCache.averageLoadMillis;
+        fooRedisCache.averageLoadMillis = TimeUnit.HOURS.toMillis(1);
+
+        try {
+            assertThat(fooRedisCache.get("bar", () -> foo("refreshed"))).contains(foo());
+
+            long deadline = System.currentTimeMillis() + 2000;
+            while (redis.pttl(key).toLong() < 2000 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            fooRedisCache.nearCache.clear();
+            assertThat(fooRedisCache.get("bar", null)).contains(foo("refreshed"));
+        } finally {
+            fooRedisCache.averageLoadMillis = averageLoadMillis;
+        }
+    }
+
+    @Test
+    void should_WriteThroughOnlyOnceTheTransactionIsCommitted() throws Exception {
+        userTransaction.begin();
+        cacheTransactions.setAfterCommit(fooRedisCache, "bar", foo(), "bar@localhost");
+        assertThat(fooRedisCache.keys()).isEmpty();
+        userTransaction.commit();
+
+        fooRedisCache.nearCache.clear();
+        assertThat(fooRedisCache.get("bar", null)).contains(foo());
+        assertThat(fooRedisCache.getByAlias("bar@localhost", foo -> foo.name, null)).contains(foo());
+    }
+
+    @Test
+    void should_NotWriteThroughARolledBackTransaction() throws Exception {
+        userTransaction.begin();
+        cacheTransactions.setAfterCommit(fooRedisCache, "bar", foo(), null);
+        userTransaction.rollback();
+
+        assertThat(fooRedisCache.keys()).isEmpty();
+    }
+
+    @Test
+    void should_EvictOnlyOnceTheTransactionIsCommitted() throws Exception {
+        fooRedisCache.set("bar", foo());
+
+        userTransaction.begin();
+        cacheTransactions.evictAfterCommit(fooRedisCache, Collections.singletonList("bar"));
+        assertThat(fooRedisCache.keys()).containsExactly(fooRedisCache.generateKey("bar"));
+        userTransaction.commit();
+
+        assertThat(fooRedisCache.keys()).isEmpty();
+        assertThat(fooRedisCache.get("bar", null)).isEmpty();
+    }
+
+    @Test
+    void should_NotEvictOnRollback() throws Exception {
+        fooRedisCache.set("bar", foo());
+
+        userTransaction.begin();
+        cacheTransactions.evictAfterCommit(fooRedisCache, Collections.singletonList("bar"));
+        userTransaction.rollback();
+
+        assertThat(fooRedisCache.keys()).containsExactly(fooRedisCache.generateKey("bar"));
+    }
+
+    @Test
+    void should_RetryAnEvictionWhichFailedAfterTheCommit() throws Exception {
+        fooRedisCache.set("bar", foo());
+        while (fooRedisCache.getCircuitState() != CircuitBreaker.State.OPEN) {
+            fooRedisCache.circuitBreaker.onFailure();
+        }
+
+        try {
+            userTransaction.begin();
+            cacheTransactions.evictAfterCommit(fooRedisCache, Collections.singletonList("bar"));
+            userTransaction.commit();
+            assertThat(fooRedisCache.pendingEvictions).containsExactly(fooRedisCache.generateKey("bar"));
+        } finally {
+            fooRedisCache.circuitBreaker.onSuccess();
+        }
+
+        // any command answered by Redis triggers the retry
+        fooRedisCache.get("other", null);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!fooRedisCache.keys().isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(fooRedisCache.keys()).isEmpty();
+        assertThat(fooRedisCache.pendingEvictions).isEmpty();
+    }
+
+    @Test
+    void should_TheLastUpdateOfAKeyInATransactionWin() throws Exception {
+        userTransaction.begin();
+        cacheTransactions.setAfterCommit(fooRedisCache, "bar", foo(), null);
+        cacheTransactions.evictAfterCommit(fooRedisCache, Collections.singletonList("bar"));
+        userTransaction.commit();
+
+        assertThat(fooRedisCache.keys()).isEmpty();
+    }
+
+    @Test
+    void should_NotWriteThroughAnOlderVersionCommittedLast() throws Exception {
+        User newer = new User();
+        newer.login = "versioned";
+        newer.firstName = "newer";
+        newer.version = 2L;
+        User older = new User();
+        older.login = "versioned";
+        older.firstName = "older";
+        older.version = 1L;
+
+        try {
+            userTransaction.begin();
+            cacheTransactions.setAfterCommit(userRedisCache, newer.login, newer, null);
+            userTransaction.commit();
+            userTransaction.begin();
+            cacheTransactions.setAfterCommit(userRedisCache, older.login, older, null);
+            userTransaction.commit();
+
+            assertThat(userRedisCache.get("versioned", null).map(user -> user.firstName)).contains("newer");
+        } finally {
+            userRedisCache.clear();
+        }
+    }
+
+    @Test
+    void should_GetByAliasStoreTheValueOnceAndResolveTheAlias() {
+        AtomicInteger loads = new AtomicInteger();
+        Supplier<Foo> loader = () -> {
+            loads.incrementAndGet();
+            return foo();
+        };
+
+        assertThat(fooRedisCache.getByAlias("bar@localhost", foo -> foo.name, loader)).contains(foo());
+        fooRedisCache.nearCache.clear();
+
+        assertThat(fooRedisCache.getByAlias("bar@localhost", foo -> foo.name, loader)).contains(foo());
+        assertThat(fooRedisCache.get("bar", null)).contains(foo());
+        assertThat(redis.get(fooRedisCache.generateKey("bar@localhost")).toBytes()[0]).isEqualTo(RedisCache.ALIAS);
+        assertThat(loads.get()).isEqualTo(1);
+
+        fooRedisCache.evict("bar");
+
+        assertThat(fooRedisCache.get("bar@localhost", null)).isEmpty();
+        assertThat(fooRedisCache.getByAlias("bar@localhost", foo -> foo.name, loader)).contains(foo());
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    void should_GetAllResolveTheAliasesInASingleCall() {
+        fooRedisCache.getByAlias("bar@localhost", foo -> foo.name, this::foo);
+        fooRedisCache.set("baz", foo("baz"));
+        fooRedisCache.nearCache.clear();
+        long calls = registry.get("cache.redis.duration").tags("cache", "foo").timers().stream().mapToLong(timer -> timer.count()).sum();
+
+        Map<String, Foo> values = fooRedisCache.getAll(Arrays.asList("bar@localhost", "baz"), null);
+
+        assertThat(values).containsEntry("bar@localhost", foo()).containsEntry("baz", foo("baz"));
+        assertThat(registry.get("cache.redis.duration").tags("cache", "foo").timers().stream().mapToLong(timer -> timer.count()).sum())
+            .isEqualTo(calls + 1);
+    }
+
+    @Test
+    void should_PreloadOnlyTheKeysNeitherStoredNorEvictedRecently() {
+        fooRedisCache.set("stored", foo("stored"));
+        fooRedisCache.evict("evicted");
+        Map<String, Foo> values = new HashMap<>();
+        values.put("preloaded", foo("preloaded"));
+        values.put("stored", foo("outdated"));
+        values.put("evicted", foo("evicted"));
+
+        assertThat(fooRedisCache.preload(values, foo -> foo.name + "@localhost")).isEqualTo(2);
+
+        fooRedisCache.nearCache.clear();
+        assertThat(fooRedisCache.get("preloaded", null)).contains(foo("preloaded"));
+        assertThat(fooRedisCache.getByAlias("preloaded@localhost", foo -> foo.name, null)).contains(foo("preloaded"));
+        assertThat(fooRedisCache.get("stored", null)).contains(foo("stored"));
+        assertThat(fooRedisCache.get("evicted", null)).isEmpty();
+        assertThat(fooRedisCache.keys()).doesNotContain(fooRedisCache.generateKey("outdated@localhost"));
+    }
+
+    @Test
+    void should_TrackTheMostReadKeysAndPinTheHottest() {
+        fooRedisCache.set("hot", foo("hot"));
+        fooRedisCache.set("cold", foo("cold"));
+        for (int i = 0; i < 5; i++) {
+            fooRedisCache.get("hot", null);
+        }
+        fooRedisCache.get("cold", null);
+
+        assertThat(fooRedisCache.getHotKeys()).extracting(Map.Entry::getKey).contains(fooRedisCache.generateKey("hot"));
+        assertThat(fooRedisCache.getHotKeys().stream().filter(entry -> entry.getKey().equals(fooRedisCache.generateKey("hot"))))
+            .allMatch(entry -> entry.getValue() >= 5);
+
+        fooRedisCache.nearCache.clear();
+        assertThat(fooRedisCache.get("hot", null)).contains(foo("hot"));
+        assertThat(fooRedisCache.get("cold", null)).contains(foo("cold"));
+
+        assertThat(fooRedisCache.isPinned(fooRedisCache.generateKey("hot"))).isTrue();
+        assertThat(fooRedisCache.isPinned(fooRedisCache.generateKey("cold"))).isFalse();
+
+        fooRedisCache.evict("hot");
+
+        assertThat(fooRedisCache.isPinned(fooRedisCache.generateKey("hot"))).isFalse();
+        assertThat(fooRedisCache.get("hot", null)).isEmpty();
+    }
+
+    @Test
+    void should_FallBackToTheLoaderWhileTheCircuitIsOpen() {
+        fooRedisCache.set("bar", foo());
+        fooRedisCache.clearLocally();
+        AtomicInteger loads = new AtomicInteger();
+        Supplier<Foo> loader = () -> {
+            loads.incrementAndGet();
+            return foo("loaded");
+        };
+        while (fooRedisCache.getCircuitState() != CircuitBreaker.State.OPEN) {
+            fooRedisCache.circuitBreaker.onFailure();
+        }
+
+        try {
+            assertThat(fooRedisCache.get("bar", loader)).contains(foo("loaded"));
+            assertThat(fooRedisCache.get("bar", loader)).contains(foo("loaded"));
+            assertThat(loads.get()).isEqualTo(1);
+            assertThat(catchThrowable(() -> fooRedisCache.set("bar", foo()))).isInstanceOf(CacheErrorException.class);
+        } finally {
+            fooRedisCache.circuitBreaker.onSuccess();
+            fooRedisCache.clearLocally();
+        }
+
+        assertThat(fooRedisCache.get("bar", loader)).contains(foo());
+    }
+
+    @Test
+    void should_ConcurrentMissesRunTheLoaderOnceWhileTheCircuitIsOpen() throws Exception {
+        Foo foo = foo();
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        while (fooRedisCache.getCircuitState() != CircuitBreaker.State.OPEN) {
+            fooRedisCache.circuitBreaker.onFailure();
+        }
+
+        try {
+            List<Future<Optional<Foo>>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(
+                    executor.submit(
+                        () -> {
+                            start.await();
+                            return fooRedisCache.get(
+                                foo.name,
+                                () -> {
+                                    loads.incrementAndGet();
+                                    try {
+                                        Thread.sleep(200);
+                                    } catch (InterruptedException e) {
+                                        Thread.currentThread().interrupt();
+                                    }
+                                    return foo;
+                                }
+                            );
+                        }
+                    )
+                );
+            }
+            start.countDown();
+
+            for (Future<Optional<Foo>> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS)).contains(foo);
+            }
+            assertThat(loads.get()).isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+            fooRedisCache.circuitBreaker.onSuccess();
+            fooRedisCache.clearLocally();
+        }
+    }
+
+    @Test
+    void should_ReadAValueStoredAsPlainJson() {
+        redis.set(Arrays.asList(fooRedisCache.generateKey("bar"), "{\"name\":\"bar\",\"age\":42}"));
+
+        assertThat(fooRedisCache.get("bar", null)).contains(foo());
+    }
+
+    @Test
+    void should_ReadAValueWrittenByAnotherCodec() throws IOException {
+        SmileCacheCodec<Foo> smileCodec = new SmileCacheCodec<>(Foo.class);
+        byte[] payload = smileCodec.encode(foo());
+        byte[] data = new byte[payload.length + 1];
+        data[0] = smileCodec.id();
+        System.arraycopy(payload, 0, data, 1, payload.length);
+
+        fooRedisCache.send("set", Request.cmd(Command.SET).arg(fooRedisCache.generateKey("bar")).arg(data));
+
+        assertThat(fooRedisCache.get("bar", null)).contains(foo());
+    }
+
+    @Test
+    void should_SerializeWithTheCodecIdentifierFirst() {
+        byte[] data = fooRedisCache.serialize(foo());
+
+        assertThat(data[0]).isEqualTo(JsonCacheCodec.ID);
+    }
+
+    @Test
+    void should_CompressLargeValues() {
+        Foo foo = foo("bar".repeat(200));
+
+        byte[] data = fooRedisCache.serialize(foo);
+        fooRedisCache.set("large", foo);
+        fooRedisCache.nearCache.clear();
+
+        assertThat(data[0] & RedisCache.COMPRESSED).isNotZero();
+        assertThat(data.length).isLessThan(600);
+        assertThat(fooRedisCache.get("large", null)).contains(foo);
+    }
+
+    @Test
+    void should_RecordHitsMissesLoadsAndEvictions() {
+        double nearHits = count("cache.gets", "result", "hit", "tier", "near");
+        double misses = count("cache.gets", "result", "miss", "tier", "redis");
+        double loads = count("cache.loads", "result", "success");
+        double evictions = count("cache.evictions");
+
+        fooRedisCache.get("bar", this::foo);
+        fooRedisCache.get("bar", this::foo);
+        fooRedisCache.evict("bar");
+
+        assertThat(count("cache.gets", "result", "hit", "tier", "near")).isEqualTo(nearHits + 1);
+        assertThat(count("cache.gets", "result", "miss", "tier", "redis")).isEqualTo(misses + 1);
+        assertThat(count("cache.loads", "result", "success")).isEqualTo(loads + 1);
+        assertThat(count("cache.evictions")).isEqualTo(evictions + 1);
+        assertThat(registry.get("cache.redis.duration").tags("cache", "foo", "operation", "set").timer().count()).isPositive();
+    }
+
+    private double count(String name, String... tags) {
+        return registry.get(name).tag("cache", "foo").tags(tags).counter().count();
+    }
+
     @Test
     void should_StoreTwoDifferentReturnOneByCacheType() {
         Foo foo = foo();
@@ -220,4 +833,74 @@ class RedisCacheTest {
         assertThat(fooKeysAfterSet).hasSize(1).contains(fooRedisCache.generateKey(foo.name));
         assertThat(userKeysAfterSet).hasSize(1).contains(userRedisCache.generateKey(user.login));
     }
+
+    @Test
+    void should_ReactiveGetReturnTheValueStoredWithoutLoadingIt() throws Exception {
+        fooRedisCache.set("bar", foo());
+        fooRedisCache.clearLocally();
+        Supplier<Uni<Foo>> loader = () -> Uni.createFrom().failure(new IllegalStateException("should not load"));
+
+        assertThat(reactiveFooRedisCache.get("bar", loader).subscribeAsCompletionStage().get(5, TimeUnit.SECONDS)).contains(foo());
+        // served from the near cache this time
+        assertThat(reactiveFooRedisCache.get("bar", loader).subscribeAsCompletionStage().get(5, TimeUnit.SECONDS)).contains(foo());
+    }
+
+    @Test
+    void should_ReactiveGetLoadAndStoreAMissingValue() throws Exception {
+        Optional<Foo> loaded = reactiveFooRedisCache
+            .get("bar", () -> Uni.createFrom().item(foo()))
+            .subscribeAsCompletionStage()
+            .get(5, TimeUnit.SECONDS);
+
+        assertThat(loaded).contains(foo());
+        fooRedisCache.clearLocally();
+        assertThat(fooRedisCache.get("bar", null)).contains(foo());
+        assertThat(reactiveFooRedisCache.get("missing", null).subscribeAsCompletionStage().get(5, TimeUnit.SECONDS)).isEmpty();
+    }
+
+    @Test
+    void should_ReactiveGetFailAndReleaseTheLoadWhenTheLoaderFails() {
+        Supplier<Uni<Foo>> failing = () -> Uni.createFrom().failure(new IllegalStateException("failed"));
+        Supplier<Uni<Foo>> throwing = () -> {
+            throw new IllegalStateException("thrown");
+        };
+
+        for (Supplier<Uni<Foo>> loader : Arrays.asList(failing, throwing)) {
+            Throwable thrown = catchThrowable(
+                () -> reactiveFooRedisCache.get("bar", loader).subscribeAsCompletionStage().get(5, TimeUnit.SECONDS)
+            );
+
+            assertThat(thrown).isInstanceOf(ExecutionException.class).hasCauseInstanceOf(IllegalStateException.class);
+            assertThat(fooRedisCache.loadsInFlight).doesNotContainKey(fooRedisCache.generateKey("bar"));
+        }
+        // the blocking cache doesn't wait for a load which will never complete
+        assertThat(fooRedisCache.get("bar", () -> foo())).contains(foo());
+    }
+
+    @Test
+    void should_ReactiveConcurrentMissesRunTheLoaderOnce() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CompletableFuture<Foo> loaded = new CompletableFuture<>();
+        Supplier<Uni<Foo>> loader = () -> {
+            loads.incrementAndGet();
+            return Uni.createFrom().completionStage(loaded);
+        };
+
+        List<CompletableFuture<Optional<Foo>>> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            results.add(reactiveFooRedisCache.get("bar", loader).subscribeAsCompletionStage());
+        }
+        // let every get find the miss before the load completes
+        long deadline = System.currentTimeMillis() + 5000;
+        while (loads.get() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(200);
+        loaded.complete(foo());
+
+        for (CompletableFuture<Optional<Foo>> result : results) {
+            assertThat(result.get(5, TimeUnit.SECONDS)).contains(foo());
+        }
+        assertThat(loads.get()).isEqualTo(1);
+    }
 }
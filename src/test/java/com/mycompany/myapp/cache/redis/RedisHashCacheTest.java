@@ -0,0 +1,149 @@
+package com.mycompany.myapp.cache.redis;
+
+import io.quarkus.redis.client.RedisClient;
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import redis.embedded.RedisServer;
+
+import javax.inject.Inject;
+import javax.transaction.UserTransaction;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@QuarkusTest
+class RedisHashCacheTest {
+    @Inject
+    FooRedisHashCache fooRedisHashCache;
+    @Inject
+    RedisClient redis;
+    @Inject
+    RedisCacheTransactions cacheTransactions;
+    @Inject
+    UserTransaction userTransaction;
+
+    static RedisServer server;
+
+    @BeforeAll
+    public static void setup() throws IOException {
+        server = new RedisServer(6379);
+        server.start();
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        server.stop();
+    }
+
+    @AfterEach
+    public void clearCache() {
+        fooRedisHashCache.clear();
+    }
+
+    private Foo foo() {
+        return foo("bar");
+    }
+
+    private Foo foo(String name) {
+        Foo foo = new Foo();
+        foo.name = name;
+        foo.age = 42;
+
+        return foo;
+    }
+
+    @Test
+    void should_StoreAFooAsAHash() {
+        fooRedisHashCache.set("bar", foo());
+
+        assertThat(redis.hget(fooRedisHashCache.generateKey("bar"), "age").toString()).isEqualTo("42");
+        assertThat(redis.hget(fooRedisHashCache.generateKey("bar"), "name").toString()).isEqualTo("\"bar\"");
+        assertThat(fooRedisHashCache.get("bar", null)).contains(foo());
+    }
+
+    @Test
+    void should_PatchUpdateOnlyTheGivenFields() {
+        fooRedisHashCache.set("bar", foo());
+
+        assertThat(fooRedisHashCache.patch("bar", Collections.singletonMap("age", 43))).isTrue();
+
+        Optional<Foo> patched = fooRedisHashCache.get("bar", null);
+        assertThat(patched).isPresent();
+        assertThat(patched.get().name).isEqualTo("bar");
+        assertThat(patched.get().age).isEqualTo(43);
+    }
+
+    @Test
+    void should_PatchNotCreateAPartialEntry() {
+        assertThat(fooRedisHashCache.patch("bar", Collections.singletonMap("age", 43))).isFalse();
+
+        assertThat(fooRedisHashCache.get("bar", null)).isEmpty();
+    }
+
+    @Test
+    void should_LoadAndStoreAMissingFooOnce() {
+        AtomicInteger loads = new AtomicInteger();
+        Supplier<Foo> loader = () -> {
+            loads.incrementAndGet();
+            return foo();
+        };
+
+        assertThat(fooRedisHashCache.get("bar", loader)).contains(foo());
+        assertThat(fooRedisHashCache.get("bar", loader)).contains(foo());
+        assertThat(loads.get()).isEqualTo(1);
+    }
+
+    @Test
+    void should_NotStoreAFooPatchedDuringItsLoad() {
+        Supplier<Foo> loaderRacingAPatch = () -> {
+            fooRedisHashCache.patch("bar", Collections.singletonMap("age", 43));
+            return foo();
+        };
+
+        assertThat(fooRedisHashCache.get("bar", loaderRacingAPatch)).contains(foo());
+
+        assertThat(fooRedisHashCache.get("bar", null)).isEmpty();
+    }
+
+    @Test
+    void should_ReadAHashThroughAnAlias() {
+        assertThat(fooRedisHashCache.getByAlias("bar@localhost", foo -> foo.name, this::foo)).contains(foo());
+
+        assertThat(fooRedisHashCache.getByAlias("bar@localhost", foo -> foo.name, null)).contains(foo());
+        assertThat(fooRedisHashCache.get("bar@localhost", null)).contains(foo());
+    }
+
+    @Test
+    void should_GetAllTheHashesInOneCall() {
+        Map<String, Foo> foos = new HashMap<>();
+        foos.put("bar", foo("bar"));
+        foos.put("baz", foo("baz"));
+        fooRedisHashCache.setAll(foos);
+
+        assertThat(fooRedisHashCache.getAll(Arrays.asList("bar", "baz"), null)).isEqualTo(foos);
+    }
+
+    @Test
+    void should_PatchOnlyOnceTheTransactionIsCommitted() throws Exception {
+        fooRedisHashCache.set("bar", foo());
+        Foo updated = foo();
+
+        userTransaction.begin();
+        updated.age = 43;
+        cacheTransactions.patchAfterCommit(fooRedisHashCache, "bar", updated, "age");
+        assertThat(redis.hget(fooRedisHashCache.generateKey("bar"), "age").toString()).isEqualTo("42");
+        userTransaction.commit();
+
+        assertThat(fooRedisHashCache.get("bar", null).map(foo -> foo.age)).contains(43);
+    }
+}
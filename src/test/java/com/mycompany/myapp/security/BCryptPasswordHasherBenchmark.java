@@ -0,0 +1,88 @@
+package com.mycompany.myapp.security;
+
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.wildfly.security.password.PasswordFactory;
+import org.wildfly.security.password.WildFlyElytronPasswordProvider;
+import org.wildfly.security.password.interfaces.BCryptPassword;
+import org.wildfly.security.password.spec.EncryptablePasswordSpec;
+import org.wildfly.security.password.spec.IteratedSaltedPasswordAlgorithmSpec;
+import org.wildfly.security.password.util.ModularCrypt;
+
+/**
+ * Measures the overhead of BCryptPasswordHasher.hash on top of the raw BCrypt cost.
+ *
+ * - raw: BCrypt alone, with a factory and a salt prepared beforehand
+ * - hash: the hasher, which reuses its factory and its per thread SecureRandom
+ * - perCallSetup: a new factory and a new SecureRandom for every hash, as the hasher used to do
+ *
+ * The low costs make the overhead visible. Run it with the main method, e.g. from the IDE.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class BCryptPasswordHasherBenchmark {
+    private static final WildFlyElytronPasswordProvider provider = new WildFlyElytronPasswordProvider();
+    private static final String PASSWORD = "benchmark-password";
+
+    @Param({ "4", "10" })
+    int iterationCount;
+
+    private BCryptPasswordHasher hasher;
+    private PasswordFactory passwordFactory;
+    private byte[] salt;
+
+    @Setup
+    public void setUp() throws Exception {
+        hasher = new BCryptPasswordHasher(iterationCount);
+        passwordFactory = PasswordFactory.getInstance(BCryptPassword.ALGORITHM_BCRYPT, provider);
+        salt = new byte[BCryptPassword.BCRYPT_SALT_SIZE];
+        new SecureRandom().nextBytes(salt);
+    }
+
+    @Benchmark
+    public String raw() throws Exception {
+        return generate(passwordFactory, salt);
+    }
+
+    @Benchmark
+    public String hash() {
+        return hasher.hash(PASSWORD);
+    }
+
+    @Benchmark
+    public String perCallSetup() throws Exception {
+        byte[] randomSalt = new byte[BCryptPassword.BCRYPT_SALT_SIZE];
+        new SecureRandom().nextBytes(randomSalt);
+        return generate(PasswordFactory.getInstance(BCryptPassword.ALGORITHM_BCRYPT, provider), randomSalt);
+    }
+
+    private String generate(PasswordFactory factory, byte[] salt) throws Exception {
+        IteratedSaltedPasswordAlgorithmSpec algorithmSpec = new IteratedSaltedPasswordAlgorithmSpec(iterationCount, salt);
+        EncryptablePasswordSpec encryptableSpec = new EncryptablePasswordSpec(PASSWORD.toCharArray(), algorithmSpec);
+        return ModularCrypt.encodeAsString(factory.generatePassword(encryptableSpec));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(BCryptPasswordHasherBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,28 @@
+package com.mycompany.myapp.security;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BCryptPasswordHasherTest {
+
+    @Test
+    void should_CalibrateTheHighestCostWithinTheTargetTime() {
+        // cost 10 takes 10 ms: 11 takes 20 ms, 12 takes 40 ms, 13 takes 80 ms
+        assertThat(BCryptPasswordHasher.costFor(10_000_000, 10, 50_000_000, 10, 16)).isEqualTo(12);
+        assertThat(BCryptPasswordHasher.costFor(10_000_000, 10, 40_000_000, 10, 16)).isEqualTo(12);
+        assertThat(BCryptPasswordHasher.costFor(10_000_000, 10, 50_000_000_000L, 10, 16)).isEqualTo(16);
+        assertThat(BCryptPasswordHasher.costFor(100_000_000, 10, 50_000_000, 10, 16)).isEqualTo(10);
+    }
+
+    @Test
+    void should_DetectTheHashesWithALowerCost() {
+        BCryptPasswordHasher hasher = new BCryptPasswordHasher(5);
+        String hash = hasher.hash("password");
+
+        assertThat(hasher.needsRehash(hash)).isFalse();
+        assertThat(new BCryptPasswordHasher(6).needsRehash(hash)).isTrue();
+        assertThat(new BCryptPasswordHasher(4).needsRehash(hash)).isFalse();
+        assertThat(new BCryptPasswordHasher(4).checkPassword("password", hash)).isTrue();
+    }
+}
@@ -0,0 +1,44 @@
+package com.mycompany.myapp.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CredentialVerificationCacheTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private CredentialVerificationCache cache(int maxEntries) {
+        CredentialVerificationCache cache = new CredentialVerificationCache();
+        cache.maxEntries = maxEntries;
+        cache.timeToLiveInMillis = 60000;
+        cache.registry = registry;
+        cache.init();
+        return cache;
+    }
+
+    @Test
+    void should_RememberTheVerifiedCredentialsUntilInvalidated() {
+        CredentialVerificationCache cache = cache(10);
+        assertThat(cache.isVerified("user", "password", "$2a$10$hash")).isFalse();
+
+        cache.put("user", "password", "$2a$10$hash");
+        assertThat(cache.isVerified("user", "password", "$2a$10$hash")).isTrue();
+        assertThat(cache.isVerified("user", "wrong password", "$2a$10$hash")).isFalse();
+        // the password was changed, on this node or another one
+        assertThat(cache.isVerified("user", "password", "$2a$10$other")).isFalse();
+        assertThat(registry.get("authentication.verification.cache").tag("result", "hit").counter().count()).isEqualTo(1);
+
+        cache.invalidate("user");
+        assertThat(cache.isVerified("user", "password", "$2a$10$hash")).isFalse();
+    }
+
+    @Test
+    void should_NotRememberAnythingWhenDisabled() {
+        CredentialVerificationCache cache = cache(0);
+
+        cache.put("user", "password", "$2a$10$hash");
+        assertThat(cache.isVerified("user", "password", "$2a$10$hash")).isFalse();
+    }
+}
@@ -0,0 +1,83 @@
+package com.mycompany.myapp.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PasswordHashingExecutorTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private PasswordHashingExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = new PasswordHashingExecutor();
+        executor.threads = 1;
+        executor.queueCapacity = 1;
+        executor.retryAfterInSeconds = 2;
+        executor.registry = registry;
+        executor.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void should_RejectTheTasksOnceTheQueueIsFull() throws InterruptedException {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletionStage<String> first = executor.submit(
+            "hash",
+            () -> {
+                running.countDown();
+                await(release);
+                return "first";
+            }
+        );
+        running.await();
+        assertThat(executor.isBusy()).isFalse();
+        CompletionStage<String> queued = executor.submit("hash", () -> "queued");
+        assertThat(executor.isBusy()).isTrue();
+        CompletionStage<String> rejected = executor.submit("hash", () -> "rejected");
+
+        assertThat(registry.get("password.hashing.queue.size").gauge().value()).isEqualTo(1);
+        assertThatThrownBy(() -> rejected.toCompletableFuture().join())
+            .isInstanceOf(CompletionException.class)
+            .hasCauseInstanceOf(PasswordHashingRejectedException.class);
+        assertThat(registry.get("password.hashing.rejections").counter().count()).isEqualTo(1);
+
+        release.countDown();
+        assertThat(first.toCompletableFuture().join()).isEqualTo("first");
+        assertThat(queued.toCompletableFuture().join()).isEqualTo("queued");
+        assertThat(registry.get("password.hashing.duration").tag("operation", "hash").timer().count()).isGreaterThanOrEqualTo(1);
+    }
+
+    @Test
+    void should_FailWithTheErrorOfTheTask() {
+        CompletionStage<String> result = executor.submit(
+            "check",
+            () -> {
+                throw new IllegalStateException("boom");
+            }
+        );
+
+        assertThatThrownBy(() -> result.toCompletableFuture().join()).hasCauseInstanceOf(IllegalStateException.class);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
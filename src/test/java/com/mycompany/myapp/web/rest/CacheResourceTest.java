@@ -0,0 +1,46 @@
+package com.mycompany.myapp.web.rest;
+
+import com.mycompany.myapp.TestUtil;
+import com.mycompany.myapp.service.dto.CacheInfoDTO;
+import io.quarkus.test.junit.QuarkusTest;
+import io.restassured.common.mapper.TypeRef;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static io.restassured.RestAssured.given;
+import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
+import static javax.ws.rs.core.Response.Status.OK;
+import static javax.ws.rs.core.Response.Status.UNAUTHORIZED;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@QuarkusTest
+public class CacheResourceTest {
+
+    private static final TypeRef<List<CacheInfoDTO>> CACHE_INFO_DTOS = new TypeRef<>() {};
+
+    @Test
+    public void listCaches() {
+        final List<CacheInfoDTO> caches = given()
+        .auth()
+        .preemptive()
+        .oauth2(TestUtil.getAdminToken())
+        .accept(APPLICATION_JSON)
+        .when()
+        .get("/management/caches")
+        .then()
+        .statusCode(OK.getStatusCode())
+        .extract().as(CACHE_INFO_DTOS);
+        assertThat(caches).extracting(cache -> cache.name).contains("user", "foo");
+    }
+
+    @Test
+    public void listCachesRequiresAuthentication() {
+        given()
+        .accept(APPLICATION_JSON)
+        .when()
+        .get("/management/caches")
+        .then()
+        .statusCode(UNAUTHORIZED.getStatusCode());
+    }
+}
@@ -0,0 +1,117 @@
+package com.mycompany.myapp.web.rest;
+
+import com.mycompany.myapp.TestUtil;
+import com.mycompany.myapp.service.LoginThrottlingService;
+import com.mycompany.myapp.web.rest.vm.LoginVM;
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.inject.Inject;
+import javax.ws.rs.core.HttpHeaders;
+
+import static io.restassured.RestAssured.given;
+import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
+import static javax.ws.rs.core.Response.Status.BAD_REQUEST;
+import static javax.ws.rs.core.Response.Status.NO_CONTENT;
+import static javax.ws.rs.core.Response.Status.OK;
+import static javax.ws.rs.core.Response.Status.TOO_MANY_REQUESTS;
+import static javax.ws.rs.core.Response.Status.UNAUTHORIZED;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.notNullValue;
+
+@QuarkusTest
+public class LoginThrottlingResourceTest {
+
+    @Inject
+    LoginThrottlingService loginThrottlingService;
+
+    /**
+     * The throttling is enabled for the whole suite: the failures of these tests must not lock the other ones out.
+     */
+    @AfterEach
+    public void clearFailures() {
+        loginThrottlingService.clear(LoginThrottlingService.LOGIN, "throttled-user");
+        loginThrottlingService.clear(LoginThrottlingService.IP, "127.0.0.1");
+    }
+
+    private int authenticate(String username) {
+        var login = new LoginVM();
+        login.username = username;
+        login.password = "wrong password";
+
+        return given().body(login).contentType(APPLICATION_JSON).when().post("/api/authenticate").then().extract().statusCode();
+    }
+
+    @Test
+    public void lockAndUnlockALogin() {
+        String adminToken = TestUtil.getAdminToken();
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(authenticate("throttled-user")).isEqualTo(UNAUTHORIZED.getStatusCode());
+        }
+        // the failures are counted in background
+        int status = UNAUTHORIZED.getStatusCode();
+        for (int i = 0; i < 10 && status != TOO_MANY_REQUESTS.getStatusCode(); i++) {
+            status = authenticate("throttled-user");
+        }
+        assertThat(status).isEqualTo(TOO_MANY_REQUESTS.getStatusCode());
+
+        var login = new LoginVM();
+        login.username = "throttled-user";
+        login.password = "wrong password";
+        given()
+            .body(login)
+            .contentType(APPLICATION_JSON)
+            .when()
+            .post("/api/authenticate")
+            .then()
+            .statusCode(TOO_MANY_REQUESTS.getStatusCode())
+            .header(HttpHeaders.RETRY_AFTER, notNullValue());
+
+        given()
+            .auth()
+            .preemptive()
+            .oauth2(adminToken)
+            .accept(APPLICATION_JSON)
+            .when()
+            .get("/management/login-throttling")
+            .then()
+            .statusCode(OK.getStatusCode())
+            .body("value", hasItem("throttled-user"));
+
+        given()
+            .auth()
+            .preemptive()
+            .oauth2(adminToken)
+            .when()
+            .delete("/management/login-throttling/login/throttled-user")
+            .then()
+            .statusCode(NO_CONTENT.getStatusCode());
+
+        assertThat(authenticate("throttled-user")).isEqualTo(UNAUTHORIZED.getStatusCode());
+    }
+
+    @Test
+    public void clearRequiresAKnownType() {
+        given()
+            .auth()
+            .preemptive()
+            .oauth2(TestUtil.getAdminToken())
+            .when()
+            .delete("/management/login-throttling/user/throttled-user")
+            .then()
+            .statusCode(BAD_REQUEST.getStatusCode());
+    }
+
+    @Test
+    public void listLockoutsRequiresAuthentication() {
+        given()
+            .accept(APPLICATION_JSON)
+            .when()
+            .get("/management/login-throttling")
+            .then()
+            .statusCode(UNAUTHORIZED.getStatusCode());
+    }
+}